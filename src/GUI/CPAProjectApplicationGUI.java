@@ -1,12 +1,25 @@
 package GUI;
 
 import GUI.menus.FileMenu;
+import application.BatchScheduler;
 import application.OverallTask;
+import application.PlanCache;
+import application.Schedule;
+import application.WorkspaceJournal;
 
 import javax.swing.*;
 import java.awt.*;
+import java.awt.event.ActionEvent;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
 
 /**
  * Represents the general CPA Project application and provides methods to show it
@@ -53,6 +66,16 @@ public class CPAProjectApplicationGUI extends JFrame {
     private static final int BOUNDARY_SCROLLABLE_ROWS = 4;
     /** Speed of the scroll bar*/
     private static final int SCROLL_BAR_SPEED = 18;
+    /** Directory of the snapshot and journal the tasks are saved to and loaded from*/
+    static final Path WORKSPACE_DIRECTORY = Paths.get(System.getProperty("user.home"), ".cpaproject", "workspace");
+
+    /** Number of tasks not shown in a tab whose subtasks are kept in memory*/
+    private static final int PLAN_CACHE_CAPACITY = 32;
+
+    /** Journal saving every change to the tasks, null until the workspace is opened*/
+    private WorkspaceJournal journal;
+    /** Unloads the subtasks of saved tasks that are not being viewed*/
+    private final PlanCache planCache = new PlanCache(PLAN_CACHE_CAPACITY, SwingUtilities::invokeLater);
 
 
     /**
@@ -80,6 +103,134 @@ public class CPAProjectApplicationGUI extends JFrame {
         return tasks;
     }
 
+    /**
+     * Gets the cache that loads the subtasks of tasks when they are viewed.
+     * @return the cache of the subtasks of all tasks in the GUI
+     */
+    public PlanCache getPlanCache() {
+        return planCache;
+    }
+
+    /**
+     * Computes the schedule of every task held by the GUI in the background, scheduling the tasks concurrently,
+     * and shows the finishing time of each on its tile once all are done. The snapshots of the tasks are taken on
+     * the event dispatch thread, where the tasks are edited, so they can be edited meanwhile. The schedules are
+     * kept by the application's ScheduleCache, so opening a task afterwards does not schedule it again unless it
+     * has been changed.
+     */
+    private void scheduleAllTasks() {
+        List<OverallTask> toSchedule = new ArrayList<>(tasks);
+        new SwingWorker<Map<OverallTask, Schedule>, Void>() {
+            @Override
+            protected Map<OverallTask, Schedule> doInBackground() {
+                return BatchScheduler.scheduleAll(toSchedule, SwingUtilities::invokeLater);
+            }
+
+            @Override
+            protected void done() {
+                try {
+                    Map<OverallTask, Schedule> schedules = get();
+                    for (Component component : taskPanel.getComponents()) {
+                        if (component instanceof OverallTaskViewComponent) {
+                            OverallTaskViewComponent tile = (OverallTaskViewComponent) component;
+                            Schedule schedule = schedules.get(tile.getTask());
+                            if (schedule != null) {
+                                tile.setSchedule(schedule);
+                            }
+                        }
+                    }
+                } catch (InterruptedException | ExecutionException e) {
+                    Throwable cause = e.getCause() != null ? e.getCause() : e;
+                    MessageGUI messageGUI = new MessageGUI("Cannot schedule tasks", cause.getMessage());
+                    javax.swing.SwingUtilities.invokeLater(messageGUI::createAndShowGUI);
+                }
+            }
+        }.execute();
+    }
+
+
+    /**
+     * Waits until every change made to the tasks is saved to the workspace. Changes are saved as they are
+     * made, so this only waits for the last ones to reach the disk.
+     * @throws IOException if the workspace cannot be written
+     */
+    public void saveWorkspace() throws IOException {
+        if (journal != null) {
+            journal.sync();
+        }
+    }
+
+    /**
+     * Saves every change made to the tasks to the workspace and closes it, waiting for a snapshot being written.
+     * Changes made afterwards are not saved. If the workspace cannot be closed it stays open.
+     * @throws IOException if the workspace cannot be written
+     */
+    public void closeWorkspace() throws IOException {
+        if (journal != null) {
+            journal.close();
+            journal = null;
+        }
+    }
+
+    /**
+     * Closes the workspace and exits the application. If the workspace cannot be saved, the user is asked
+     * whether to exit anyway.
+     */
+    private void exitApplication() {
+        try {
+            closeWorkspace();
+        } catch (IOException e) {
+            WarningGUI warningGUI = new WarningGUI("Cannot save tasks", "The tasks could not be saved: "
+                    + e.getMessage() + ". Changes made since they were last saved will be lost. Do you wish to "
+                    + "exit anyway?", null, null);
+            warningGUI.setContinueButtonAction(new AbstractAction() {
+                @Override
+                public void actionPerformed(ActionEvent actionEvent) {
+                    dispose();
+                    System.exit(0);
+                }
+            });
+            warningGUI.setCancelButtonAction(new AbstractAction() {
+                @Override
+                public void actionPerformed(ActionEvent actionEvent) {
+                    warningGUI.dispose();
+                    warnIfNotSaving();
+                }
+            });
+            javax.swing.SwingUtilities.invokeLater(warningGUI::createAndShowGUI);
+            return;
+        }
+        dispose();
+        System.exit(0);
+    }
+
+    /**
+     * Tells the user if the workspace no longer saves the changes made to the tasks, after it could not be
+     * written. A workspace that only failed to write a snapshot still saves them.
+     */
+    private void warnIfNotSaving() {
+        try {
+            saveWorkspace();
+        } catch (IOException e) {
+            MessageGUI messageGUI = new MessageGUI("Tasks are not saved", "The tasks could not be saved: "
+                    + e.getMessage() + ". Changes made from now on will not be saved either.");
+            javax.swing.SwingUtilities.invokeLater(messageGUI::createAndShowGUI);
+        }
+    }
+
+    /**
+     * Opens the workspace and adds all tasks saved in it to the GUI. From then on, every change to the tasks
+     * is saved to the workspace. Only the summaries of the tasks are read; their subtasks are read when a task
+     * is opened, while all tasks are scheduled in the background, see scheduleAllTasks.
+     * @return whether the workspace had any tasks
+     * @throws IOException if the workspace cannot be read
+     */
+    public boolean openWorkspace() throws IOException {
+        journal = WorkspaceJournal.open(WORKSPACE_DIRECTORY, SwingUtilities::invokeLater);
+        addAllOverallTasks(new ArrayList<>(journal.getPlans()));
+        scheduleAllTasks();
+        return !tasks.isEmpty();
+    }
 
     public void updateTaskPanel() {
         taskPanel.removeAll();
@@ -104,6 +255,10 @@ public class CPAProjectApplicationGUI extends JFrame {
         if (addToList) {
             tasks.add(task);
             position = tasks.size();
+            planCache.add(task);
+            if (journal != null) {
+                journal.planAdded(task);
+            }
         }
         Dimension componentDimension = new Dimension(OVERALL_TASK_VIEW_COMPONENT_WIDTH, OVERALL_TASK_VIEW_COMPONENT_HEIGHT);
         OverallTaskViewComponent overallTaskViewComponent = new OverallTaskViewComponent(this, task,
@@ -158,6 +313,10 @@ public class CPAProjectApplicationGUI extends JFrame {
         //Note: recalculating the position of every task might be more expensive than drawing all tasks again, TBD.
         //TODO: PABLO
         tasks.remove(task);
+        planCache.remove(task);
+        if (journal != null) {
+            journal.planRemoved(task);
+        }
     }
 
 
@@ -167,8 +326,14 @@ public class CPAProjectApplicationGUI extends JFrame {
     public void createAndShowGUI() {
 
         setTitle(APPLICATION_NAME);
-        // Sets what to do when frame closes
-        setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
+        // Sets what to do when frame closes: the workspace is closed first, so no change is lost
+        setDefaultCloseOperation(JFrame.DO_NOTHING_ON_CLOSE);
+        addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosing(WindowEvent windowEvent) {
+                exitApplication();
+            }
+        });
         setIconImage(new ImageIcon(ClassLoader.getSystemResource(ICON_PATH)).getImage());
 
         //shows the frame
@@ -10,6 +10,7 @@ import com.mxgraph.view.mxStylesheet;
 
 import javax.swing.*;
 import java.awt.*;
+import java.awt.event.WindowAdapter;
 import java.awt.event.WindowEvent;
 import java.util.HashMap;
 import java.util.Hashtable;
@@ -18,6 +19,7 @@ import java.util.Map;
 public class GraphView extends JFrame {
 
     private OverallTask task;
+    private PlanCache planCache;
     private CPAGraph graph;
     private mxGraphComponent graphComponent;
     private JScrollPane scrollPane;
@@ -34,6 +36,20 @@ public class GraphView extends JFrame {
 
         this.task = task;
         this.idToTask = new HashMap<>();
+
+        //the view holds on to the subtasks of the task, so they must not be
+        //unloaded until it is closed
+        this.planCache = task.getPlanCache();
+        if (planCache != null) {
+            planCache.pin(task);
+            setDefaultCloseOperation(JFrame.DISPOSE_ON_CLOSE);
+            addWindowListener(new WindowAdapter() {
+                @Override
+                public void windowClosed(WindowEvent e) {
+                    planCache.unpin(GraphView.this.task);
+                }
+            });
+        }
         this.graph = new CPAGraph();
         Object parent = graph.getDefaultParent();
 
@@ -9,7 +9,6 @@ import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
-import java.util.HashSet;
 
 import static GUI.TaskGUI.DEFAULT_INSETS;
 
@@ -133,7 +132,7 @@ public class NewDependencyGraphView extends AbstractSelectDependencyGraphView {
 
                 if (getTask().getTaskName().equals(getSelectedNode().getText())) {
                     OverallTask overallTask = getTask();
-                    SubTask subTask = SubTask.findSubTaskInDependencies(getTask(), secondTask.getText());
+                    SubTask subTask = getTask().findSubTask(secondTask.getText());
                     overallTask.addSubTask(subTask);
                     this.close();
                 } else if (getTask().getTaskName().equals(secondTask.getText())) {
@@ -142,11 +141,10 @@ public class NewDependencyGraphView extends AbstractSelectDependencyGraphView {
                     SwingUtilities.invokeLater(m::createAndShowGUI);
                 } else {
                     //both subtasks
-                    SubTask subTask1 = SubTask.findSubTaskInDependencies(getTask(), getSelectedNode().getText());
-                    SubTask subTask2 = SubTask.findSubTaskInDependencies(getTask(), secondTask.getText());
+                    SubTask subTask1 = getTask().findSubTask(getSelectedNode().getText());
+                    SubTask subTask2 = getTask().findSubTask(secondTask.getText());
 
-                    boolean isSubTask1InSubTask2 = SubTask.findRecursivelySubTask(subTask2,
-                            subTask1.getTaskName(), new HashSet<>()) != null;
+                    boolean isSubTask1InSubTask2 = getTask().wouldCreateCycle(subTask1, subTask2);
                     if (isSubTask1InSubTask2) {
                         MessageGUI m = new MessageGUI("Invalid selection", "First task \""
                                 + getSelectedNode().getText() + "\" is already a dependency of the second task \""
@@ -2,6 +2,7 @@ package GUI;
 
 import application.Duration;
 import application.OverallTask;
+import application.ScheduleCache;
 import application.Time;
 
 import javax.swing.*;
@@ -159,7 +160,6 @@ public class OptionsPanel extends JPanel implements ActionListener {
         this.optimiseScheduleButton = setButton(OPTIMISE_SCHEDULE_BUTTON, this);
         this.showGraphViewButton = setButton(SHOW_GRAPH_BUTTON, this);
         this.newDependencyButton = setButton(NEW_DEPENDENCY_BUTTON, this);
-        //TODO: Optimise dependencies (once Naman and Erik finish) - compute CPA and show in Gantt chart
 
         setCustomLayoutManageDependenciesPanel(manageDependenciesPanel);
 
@@ -304,6 +304,7 @@ public class OptionsPanel extends JPanel implements ActionListener {
                 break;
             }
             case OPTIMISE_SCHEDULE_BUTTON: {
+                taskDataPanel.optimise();
                 break;
             }
             case SHOW_GRAPH_BUTTON: {
@@ -408,7 +409,8 @@ public class OptionsPanel extends JPanel implements ActionListener {
             @Override
             public void actionPerformed(ActionEvent actionEvent) {
                 //remove task
-                applicationReference.getTasks().remove(task);
+                applicationReference.removeOverallTask(task);
+                ScheduleCache.getDefault().remove(task);
                 //go back to application task view
                 JTabbedPane pane = applicationReference.getTabbedPane();
                 //close tab
@@ -1,7 +1,9 @@
 package GUI;
 
 
+import application.Duration;
 import application.OverallTask;
+import application.Schedule;
 
 import javax.swing.*;
 import java.awt.*;
@@ -25,6 +27,8 @@ public class OverallTaskViewComponent extends JPanel implements MouseListener {
     private final JLabel duration;
     /** Label representing the starting time of the OverallTask*/
     private final JLabel startTime;
+    /** Label representing the finishing time of the OverallTask, empty until it has been scheduled*/
+    private final JLabel finishTime;
     /** Color for every task */
     private final Color initialColor = new Color(51,161,222);
     /** Color for every hovered task*/
@@ -47,6 +51,8 @@ public class OverallTaskViewComponent extends JPanel implements MouseListener {
         duration.setFont(FontCollection.DEFAULT_FONT_PLAIN);
         this.startTime = new JLabel("Starts at: " + task.getStartTime().toString());
         startTime.setFont(FontCollection.DEFAULT_FONT_PLAIN);
+        this.finishTime = new JLabel();
+        finishTime.setFont(FontCollection.DEFAULT_FONT_PLAIN);
         setBackground(initialColor);
         setTaskViewComponentLayout();
         setPreferredSize(dimension);
@@ -80,6 +86,29 @@ public class OverallTaskViewComponent extends JPanel implements MouseListener {
         startTimeConstraints.gridy = 2;
         durationConstraints.insets = new Insets(0, 10, 10, 10);
         add(startTime, startTimeConstraints);
+
+        //constraints for the finishing time
+        GridBagConstraints finishTimeConstraints = new GridBagConstraints();
+        finishTimeConstraints.gridx = 1;
+        finishTimeConstraints.gridy = 3;
+        add(finishTime, finishTimeConstraints);
+    }
+
+    /**
+     * Gets the task represented by the component.
+     * @return the overall task of the component
+     */
+    public OverallTask getTask() {
+        return task;
+    }
+
+    /**
+     * Shows the time at which the task finishes according to the given schedule.
+     * @param schedule the schedule of the task
+     */
+    public void setSchedule(Schedule schedule) {
+        finishTime.setText("Finishes at: "
+                + task.getStartTime().addDuration(Duration.ofMinutes(schedule.getFinishTime())).toString());
     }
 
     @Override
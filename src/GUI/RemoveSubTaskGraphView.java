@@ -70,19 +70,14 @@ public class RemoveSubTaskGraphView extends AbstractSelectDependencyGraphView {
                     break;
                 }
                 //remove dependency from task
-                SubTask subTask = SubTask.findSubTaskInDependencies(getTask(), getSelectedNode().getText());
+                SubTask subTask = getTask().findSubTask(getSelectedNode().getText());
                 //if parent task is an overall task, then delete directly
                 if (getTask().getAllSubTasks().contains(subTask)) {
                     //POSSIBLY ISSUE A WARNING TO USER, AS THIS WILL DELETE ALL DEPENDENCIES OF THE GIVEN SUBTASK
                     getTask().removeSubTask(subTask);
                 } else {
-                    //otherwise, find parent tasks, until no more are found (subTask != null)
-                    SubTask parent = SubTask.findParentOf(getTask(), getSelectedNode().getText());
-                    while (parent != null) {
-                        parent.removeDependency(subTask);
-                        parent = SubTask.findParentOf(getTask(), getSelectedNode().getText());
-                    }
-                    //parent == null, so all parents have been found
+                    //otherwise, unlink it from all its parent subtasks at once
+                    getTask().detachSubTask(subTask);
                 }
                 //update gantt chart
                 getTaskDataPanel().updateGanttChart();
@@ -75,7 +75,7 @@ public class SelectEditDependencyGraphView extends AbstractSelectDependencyGraph
                     break;
                 }
                 //create the GUI that will handle the editing
-                SubTask subTask = SubTask.findSubTaskInDependencies(getTask(), taskId);
+                SubTask subTask = getTask().findSubTask(taskId);
                 EditDependencyGUI editDependencyGUI = new EditDependencyGUI(this, subTask, getTaskDataPanel());
                 javax.swing.SwingUtilities.invokeLater(editDependencyGUI::showGUI);
 
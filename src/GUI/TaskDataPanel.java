@@ -1,6 +1,10 @@
 package GUI;
 
 import application.OverallTask;
+import application.PlanTopology;
+import application.ResourceSchedule;
+import application.Schedule;
+import application.ScheduleOptimiser;
 import application.SubTask;
 import org.jfree.chart.ChartFactory;
 import org.jfree.chart.ChartPanel;
@@ -47,6 +51,12 @@ public class TaskDataPanel extends JPanel {
     private JScrollPane descriptionScrollPane;
     /** Panel holding all options for the opened overall task*/
     private OptionsPanel optionsPanel;
+    /** Whether the gantt chart shows the schedule computed by the critical path analysis*/
+    private boolean optimised;
+    /** The optimiser searching for a better schedule to show, if one is running*/
+    private ScheduleOptimiser optimiser;
+    /** The best schedule found by the optimiser, or null to schedule the task again when it is shown*/
+    private ResourceSchedule optimisedSchedule;
 
     //Default constants
     /** Vertical scrolling speed for gantt chart scroll pane*/
@@ -54,6 +64,12 @@ public class TaskDataPanel extends JPanel {
     /** String used when no description was provided by the user*/
     static final String DEFAULT_NO_DESCRIPTION = "No description was provided by the user.";
     private static final Insets TOP_DEFAULT_INSETS = new Insets(10, 10, 20, 10);
+    /** Colour of the bars of critical subtasks*/
+    private static final Color CRITICAL_COLOR = new Color(255, 97, 29);
+    /** Colour of the bars of subtasks with float*/
+    private static final Color FLOAT_COLOR = new Color(58, 207, 239);
+    /** Time the optimiser is given to improve the schedule, in milliseconds*/
+    private static final long OPTIMISATION_BUDGET_MILLIS = 10_000;
 
 
     public TaskDataPanel(CPAProjectApplicationGUI applicationReference, OverallTask task) {
@@ -114,8 +130,8 @@ public class TaskDataPanel extends JPanel {
         //disables the menu
         ganttChartPanel.setPopupMenu(null);
         CategoryPlot plot = (CategoryPlot) ganttChart.getPlot();
-        plot.getRenderer().setSeriesPaint(0, new Color(255, 97, 29));
-        //plot.getRenderer().setSeriesPaint(0, new Color(58,207,239));
+        plot.getRenderer().setSeriesPaint(0, CRITICAL_COLOR);
+        plot.getRenderer().setSeriesPaint(1, FLOAT_COLOR);
         //changes the style of the gradient, looks nicer
         ((BarRenderer)plot.getRenderer()).setBarPainter(new GradientBarPainter(0, 0, 0));
 
@@ -147,6 +163,17 @@ public class TaskDataPanel extends JPanel {
             return null;
         }
 
+        if (optimised) {
+            try {
+                return createScheduleDataset();
+            } catch (IllegalStateException | IllegalArgumentException e) {
+                //the dependencies contain a cycle, or a subtask needs more hands than the task has
+                MessageGUI messageGUI = new MessageGUI("Cannot schedule task", e.getMessage());
+                javax.swing.SwingUtilities.invokeLater(messageGUI::createAndShowGUI);
+                return null;
+            }
+        }
+
         for (SubTask t : task.getAllSubTasks()) {
             recursiveAdd(dependencies, t);
         }
@@ -173,19 +200,126 @@ public class TaskDataPanel extends JPanel {
         }
     }
 
+    /**
+     * Creates the dataset of the schedule of the task, with every subtask at the time it is started when no more
+     * subtasks are carried out at once than the task has hands for. Subtasks on the critical path and subtasks with
+     * float are shown in different series, in the order they can be started.
+     * @return the dataset of the schedule
+     */
+    private TaskSeriesCollection createScheduleDataset() {
+        Schedule schedule = task.schedule();
+        ResourceSchedule resourceSchedule = optimisedSchedule != null ? optimisedSchedule : task.scheduleWithHands();
+        PlanTopology topology = resourceSchedule.getTopology();
+        TaskSeries critical = new TaskSeries("Critical subtasks of " + task.getTaskName() + " task");
+        TaskSeries withFloat = new TaskSeries("Subtasks with float");
+
+        Calendar start = Calendar.getInstance();
+        start.set(Calendar.HOUR_OF_DAY, task.getStartTime().getHours());
+        start.set(Calendar.MINUTE, task.getStartTime().getMinutes());
+        start.set(Calendar.SECOND, 0);
+        start.set(Calendar.MILLISECOND, 0);
+
+        for (int p = 0; p < topology.size(); p++) {
+            SubTask subTask = topology.getTask(topology.getOrder(p));
+            SimpleTimePeriod period = new SimpleTimePeriod(minutesAfter(start, resourceSchedule.getStart(subTask)),
+                    minutesAfter(start, resourceSchedule.getFinish(subTask)));
+            Task ganttTask = new Task(subTask.getTaskName(), period);
+            if (schedule.isCritical(subTask)) {
+                critical.add(ganttTask);
+            } else {
+                withFloat.add(ganttTask);
+            }
+        }
+
+        TaskSeriesCollection collection = new TaskSeriesCollection();
+        collection.add(critical);
+        collection.add(withFloat);
+
+        return collection;
+    }
+
+    private Date minutesAfter(Calendar start, int minutes) {
+        Calendar calendar = (Calendar) start.clone();
+        calendar.add(Calendar.MINUTE, minutes);
+        return calendar.getTime();
+    }
+
     private Date date(int day, int month, int year) {
         final Calendar calendar = Calendar.getInstance();
         calendar.set(year, month, day);
         return calendar.getTime();
     }
 
-    private void optimise() {
-        //TODO: COMPLETE, THIS METHOD IS CALLED WHEN CPA IS EVALUATED ON THE GANTT CHART
-        //recompute gantt chart
-        //update it
+    /**
+     * Schedules the task with its hands, guided by the critical path analysis, and shows the resulting schedule on
+     * the gantt chart. An optimiser then keeps searching for a schedule that finishes earlier in the background, and
+     * every better schedule it finds replaces the one shown. Once the task is updated, the search is stopped and the
+     * chart shows the schedule of the updated task.
+     */
+    void optimise() {
+        cancelOptimisation();
+        try {
+            optimiser = task.optimiser();
+        } catch (IllegalArgumentException e) {
+            //a subtask needs more hands than the task has
+            optimised = false;
+            MessageGUI messageGUI = new MessageGUI("Cannot optimise schedule", e.getMessage());
+            javax.swing.SwingUtilities.invokeLater(messageGUI::createAndShowGUI);
+            return;
+        }
+        optimised = true;
+        optimisedSchedule = optimiser.getBest();
+        showGanttChart();
+
+        ScheduleOptimiser running = optimiser;
+        running.start(OPTIMISATION_BUDGET_MILLIS,
+                schedule -> javax.swing.SwingUtilities.invokeLater(() -> showImprovement(running, schedule)));
+    }
+
+    /**
+     * Shows a schedule found by the optimiser, unless the optimiser has been stopped since it was found.
+     */
+    private void showImprovement(ScheduleOptimiser source, ResourceSchedule schedule) {
+        if (source != optimiser) {
+            return;
+        }
+        optimisedSchedule = schedule;
+        showGanttChart();
+    }
+
+    /**
+     * Stops the optimiser, if one is running, and forgets the schedule it found.
+     */
+    private void cancelOptimisation() {
+        if (optimiser != null) {
+            optimiser.cancel();
+            optimiser = null;
+        }
+        optimisedSchedule = null;
+    }
+
+    @Override
+    public void addNotify() {
+        super.addNotify();
+        //the tab holds on to the subtasks of the task, which must not be unloaded while it is open
+        applicationReference.getPlanCache().pin(task);
+    }
+
+    @Override
+    public void removeNotify() {
+        //the tab was closed, so there is nothing left to show the schedules on
+        cancelOptimisation();
+        applicationReference.getPlanCache().unpin(task);
+        super.removeNotify();
     }
 
     public void updateGanttChart() {
+        //the task may have changed, so a schedule found for it before no longer applies
+        cancelOptimisation();
+        showGanttChart();
+    }
+
+    private void showGanttChart() {
 
         IntervalCategoryDataset dataset = createDataset();
 
@@ -206,8 +340,8 @@ public class TaskDataPanel extends JPanel {
         ganttChartPanel.setPopupMenu(null);
 
         CategoryPlot plot = (CategoryPlot) ganttChart.getPlot();
-        plot.getRenderer().setSeriesPaint(0, new Color(255, 97, 29));
-        //plot.getRenderer().setSeriesPaint(0, new Color(58,207,239));
+        plot.getRenderer().setSeriesPaint(0, CRITICAL_COLOR);
+        plot.getRenderer().setSeriesPaint(1, FLOAT_COLOR);
         //changes the style of the gradient, looks nicer
         ((BarRenderer)plot.getRenderer()).setBarPainter(new GradientBarPainter(0, 0, 0));
 
@@ -2,6 +2,8 @@ package GUI.menus;
 
 import GUI.*;
 import GUI.menus.actions.ExitAction;
+import GUI.menus.actions.ExportAction;
+import GUI.menus.actions.ImportAction;
 import GUI.menus.actions.NewOverallTaskAction;
 import GUI.menus.actions.NewSubTaskAction;
 
@@ -26,6 +28,10 @@ public class FileMenu extends JMenu {
     private JMenuItem newOverallTaskItem;
     /** New subTask creation menu under NEW menu*/
     private JMenuItem newSubTaskItem;
+    /** Import menu in File menu*/
+    private JMenuItem importItem;
+    /** Export menu in File menu*/
+    private JMenuItem exportItem;
     /** Exit menu under NEW menu*/
     private JMenuItem exitItem;
 
@@ -35,6 +41,10 @@ public class FileMenu extends JMenu {
     private static final String MENU_STRING_TASK = "Task";
     /** String for creation of SubTask menu*/
     private static final String MENU_STRING_SUBTASK = "Subtask";
+    /** String for import menu*/
+    private static final String MENU_STRING_IMPORT = "Import...";
+    /** String for export menu*/
+    private static final String MENU_STRING_EXPORT = "Export...";
     /** String for creation of exit menu*/
     private static final String MENU_STRING_EXIT = "Exit";
 
@@ -60,6 +70,12 @@ public class FileMenu extends JMenu {
         this.newSubTaskItem = new JMenuItem(MENU_STRING_SUBTASK);
         newSubTaskItem.setFont(FontCollection.DEFAULT_FONT_PLAIN);
 
+        this.importItem = new JMenuItem(MENU_STRING_IMPORT);
+        importItem.setFont(FontCollection.DEFAULT_FONT_PLAIN);
+
+        this.exportItem = new JMenuItem(MENU_STRING_EXPORT);
+        exportItem.setFont(FontCollection.DEFAULT_FONT_PLAIN);
+
         this.exitItem = new JMenuItem(MENU_STRING_EXIT);
         exitItem.setFont(FontCollection.DEFAULT_FONT_PLAIN);
 
@@ -68,6 +84,8 @@ public class FileMenu extends JMenu {
         newMenu.setMnemonic(KeyEvent.VK_N);
         newOverallTaskItem.setMnemonic(KeyEvent.VK_T);
         newSubTaskItem.setMnemonic(KeyEvent.VK_S);
+        importItem.setMnemonic(KeyEvent.VK_I);
+        exportItem.setMnemonic(KeyEvent.VK_X);
         exitItem.setMnemonic(KeyEvent.VK_E);
 
         //adds file menu to menu bar
@@ -76,6 +94,12 @@ public class FileMenu extends JMenu {
         //sets actions for new submenu
         setActionsNewMenu();
 
+        //sets actions import item
+        setActionImportItem();
+
+        //sets actions export item
+        setActionExportItem();
+
         //sets actions exit item
         setActionExitItem();
 
@@ -105,6 +129,24 @@ public class FileMenu extends JMenu {
 
     }
 
+    /**
+     * Sets up the import menu and its action
+     */
+    private void setActionImportItem() {
+        add(importItem);
+        importItem.setAction(new ImportAction(applicationReference));
+        importItem.setText(MENU_STRING_IMPORT);
+    }
+
+    /**
+     * Sets up the export menu and its action
+     */
+    private void setActionExportItem() {
+        add(exportItem);
+        exportItem.setAction(new ExportAction(applicationReference));
+        exportItem.setText(MENU_STRING_EXPORT);
+    }
+
     /**
      * Sets up the exit menu and its action
      */
@@ -1,10 +1,12 @@
 package GUI.menus.actions;
 
 import GUI.CPAProjectApplicationGUI;
+import GUI.MessageGUI;
 
 import javax.swing.*;
 import java.awt.event.ActionEvent;
 import java.awt.event.WindowEvent;
+import java.io.IOException;
 
 /**
  * Class representing the exit application action
@@ -31,17 +33,27 @@ public class ExitAction extends AbstractAction {
      */
     @Override
     public void actionPerformed(ActionEvent actionEvent) {
-        //save data into file
-        saveData();
-        //close application window
+        //save data into file, and keep the application open if that fails
+        if (!saveData()) {
+            return;
+        }
+        //close application window, which closes the workspace
         applicationReference.dispatchEvent(new WindowEvent(applicationReference, WindowEvent.WINDOW_CLOSING));
 
     }
 
     /**
-     * Saves the user's data
+     * Saves the user's data to the workspace
+     * @return whether the data was saved
      */
-    private void saveData() {
-        //TODO: PABLO, SAVE DATA INTO FILE
+    private boolean saveData() {
+        try {
+            applicationReference.saveWorkspace();
+            return true;
+        } catch (IOException e) {
+            MessageGUI messageGUI = new MessageGUI("Cannot save tasks", e.getMessage());
+            javax.swing.SwingUtilities.invokeLater(messageGUI::createAndShowGUI);
+            return false;
+        }
     }
 }
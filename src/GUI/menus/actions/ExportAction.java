@@ -0,0 +1,90 @@
+package GUI.menus.actions;
+
+import GUI.CPAProjectApplicationGUI;
+import GUI.MessageGUI;
+import application.OverallTask;
+import application.PlanSnapshot;
+import application.ScheduleExporter;
+
+import javax.swing.*;
+import javax.swing.filechooser.FileNameExtensionFilter;
+import java.awt.event.ActionEvent;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Action representing the intention of the user of exporting the schedules of all tasks to a CSV, JSON Lines or
+ * iCalendar file, see ScheduleExporter.
+ */
+public class ExportAction extends AbstractAction {
+
+    /** A reference to the application GUI*/
+    private CPAProjectApplicationGUI applicationReference;
+
+    /**
+     * Constructor for the action. Calls super and initialises the application GUI field
+     * @param applicationReference a reference to the CPAProjectApplicationGUI
+     */
+    public ExportAction(CPAProjectApplicationGUI applicationReference) {
+        super();
+        this.applicationReference = applicationReference;
+    }
+
+    /**
+     * Overriden actionPerformed method, asks for the file to export to and exports the schedules of all tasks,
+     * starting today
+     * @param actionEvent the action event generated
+     */
+    @Override
+    public void actionPerformed(ActionEvent actionEvent) {
+        JFileChooser fileChooser = new JFileChooser();
+        fileChooser.setFileFilter(new FileNameExtensionFilter("Schedules (CSV, JSON Lines, iCalendar)", "csv",
+                "jsonl", "json", "ics"));
+        if (fileChooser.showSaveDialog(applicationReference) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        exportTasks(fileChooser.getSelectedFile().toPath(), new ArrayList<>(applicationReference.getTasks()));
+    }
+
+    /**
+     * Exports the schedules of the tasks in the background. The schedules are streamed to the file, so exporting
+     * is bound by writing it rather than by memory. Each task is read on the event dispatch thread, where tasks
+     * are edited, one at a time into a PlanSnapshot; only the snapshot is scheduled and written in the
+     * background, so the tasks can be edited, and the plan cache can unload them, while the export runs.
+     * @param path the file to export to
+     * @param tasks the tasks to export
+     */
+    private void exportTasks(Path path, List<OverallTask> tasks) {
+        ScheduleExporter.Format format = ScheduleExporter.Format.of(path.getFileName().toString());
+
+        new SwingWorker<Void, Void>() {
+            @Override
+            protected Void doInBackground() throws IOException {
+                try (OutputStream out = Files.newOutputStream(path);
+                     ScheduleExporter exporter = new ScheduleExporter(out, format, LocalDate.now())) {
+                    for (OverallTask task : tasks) {
+                        exporter.export(PlanSnapshot.of(task, SwingUtilities::invokeLater));
+                    }
+                }
+                return null;
+            }
+
+            @Override
+            protected void done() {
+                try {
+                    get();
+                } catch (InterruptedException | ExecutionException e) {
+                    Throwable cause = e.getCause() != null ? e.getCause() : e;
+                    MessageGUI messageGUI = new MessageGUI("Cannot export schedules", cause.getMessage());
+                    javax.swing.SwingUtilities.invokeLater(messageGUI::createAndShowGUI);
+                }
+            }
+        }.execute();
+    }
+}
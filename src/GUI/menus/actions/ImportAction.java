@@ -0,0 +1,118 @@
+package GUI.menus.actions;
+
+import GUI.CPAProjectApplicationGUI;
+import GUI.MessageGUI;
+import application.Duration;
+import application.ImportReport;
+import application.OverallTask;
+import application.TaskImporter;
+import application.Time;
+
+import javax.swing.*;
+import javax.swing.filechooser.FileNameExtensionFilter;
+import java.awt.event.ActionEvent;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Action representing the intention of the user of importing a task from a list of subtasks in a CSV or JSON
+ * Lines file, see TaskImporter.
+ */
+public class ImportAction extends AbstractAction {
+
+    /** A reference to the application GUI*/
+    private CPAProjectApplicationGUI applicationReference;
+
+    /**
+     * Constructor for the action. Calls super and initialises the application GUI field
+     * @param applicationReference a reference to the CPAProjectApplicationGUI
+     */
+    public ImportAction(CPAProjectApplicationGUI applicationReference) {
+        super();
+        this.applicationReference = applicationReference;
+    }
+
+    /**
+     * Overriden actionPerformed method, asks for the file to import and imports it as a new task
+     * @param actionEvent the action event generated
+     */
+    @Override
+    public void actionPerformed(ActionEvent actionEvent) {
+        JFileChooser fileChooser = new JFileChooser();
+        fileChooser.setFileFilter(new FileNameExtensionFilter("Task lists (CSV, JSON Lines)", "csv", "jsonl", "json"));
+        if (fileChooser.showOpenDialog(applicationReference) == JFileChooser.APPROVE_OPTION) {
+            importTask(fileChooser.getSelectedFile().toPath());
+        }
+    }
+
+    /**
+     * Imports the file as a new task named after it. The task is built in the background and only added to the
+     * application once it is complete.
+     * @param path the file to import
+     */
+    private void importTask(Path path) {
+        String fileName = path.getFileName().toString();
+        int extension = fileName.lastIndexOf('.');
+        String taskName = extension > 0 ? fileName.substring(0, extension) : fileName;
+        LocalTime now = LocalTime.now();
+        OverallTask task = new OverallTask(taskName, new Duration(0, 0), new Time(now.getHour(), now.getMinute()));
+
+        new SwingWorker<ImportReport, Void>() {
+            @Override
+            protected ImportReport doInBackground() throws IOException {
+                try (InputStream in = Files.newInputStream(path)) {
+                    return TaskImporter.importTasks(in, TaskImporter.Format.of(fileName), task);
+                }
+            }
+
+            @Override
+            protected void done() {
+                MessageGUI messageGUI;
+                try {
+                    ImportReport report = get();
+                    //the task takes as long as its subtasks
+                    if (task.getSubTaskCount() > 0) {
+                        task.setDuration(Duration.ofMinutes(task.schedule().getFinishTime()));
+                    }
+                    applicationReference.addOverallTask(task);
+                    applicationReference.updateTaskPanel();
+                    applicationReference.revalidate();
+                    messageGUI = new MessageGUI("Tasks imported", describe(report));
+                } catch (InterruptedException | ExecutionException e) {
+                    Throwable cause = e.getCause() != null ? e.getCause() : e;
+                    messageGUI = new MessageGUI("Cannot import tasks", cause.getMessage());
+                }
+                javax.swing.SwingUtilities.invokeLater(messageGUI::createAndShowGUI);
+            }
+        }.execute();
+    }
+
+    /**
+     * Describes what was imported, followed by the rows skipped, the unknown dependencies and the dependencies
+     * closing a cycle.
+     * @param report the report of the import
+     * @return the description of the import
+     */
+    private static String describe(ImportReport report) {
+        StringBuilder message = new StringBuilder(report.toString());
+        appendProblems(message, report.getRowErrors(), report.getRowErrorCount());
+        appendProblems(message, report.getUnknownNames(), report.getUnknownNameCount());
+        appendProblems(message, report.getCycles(), report.getCycleCount());
+        return message.toString();
+    }
+
+    private static void appendProblems(StringBuilder message, List<String> problems, int count) {
+        for (String problem : problems) {
+            message.append('\n').append(problem);
+        }
+        //the report only describes the first problems of each kind
+        if (count > problems.size()) {
+            message.append('\n').append(count - problems.size()).append(" more");
+        }
+    }
+}
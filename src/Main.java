@@ -5,12 +5,13 @@ import application.SubTask;
 import application.Time;
 
 import javax.swing.*;
+import java.io.IOException;
 import java.util.LinkedList;
 import java.util.List;
 
 public class Main {
 
-    public static void main(String[] args) throws InterruptedException, ClassNotFoundException, UnsupportedLookAndFeelException, InstantiationException, IllegalAccessException {
+    public static void main(String[] args) throws IOException, InterruptedException, ClassNotFoundException, UnsupportedLookAndFeelException, InstantiationException, IllegalAccessException {
         CPAProjectApplicationGUI application = new CPAProjectApplicationGUI();
         javax.swing.SwingUtilities.invokeLater(application::createAndShowGUI);
 
@@ -24,6 +25,12 @@ public class Main {
             }
         }
 
+        //tasks saved when the application was last closed replace the sample tasks
+        if (application.openWorkspace()) {
+            application.revalidate();
+            return;
+        }
+
         OverallTask t1 = new OverallTask("Morning routine", new Duration(0, 15), new Time(10, 40), "This is my morning routine");
         OverallTask t2 = new OverallTask("Afternoon routine", new Duration(0, 10), new Time(15, 30));
         OverallTask t3 = new OverallTask("Dinner", new Duration(0, 45), new Time(21, 45));
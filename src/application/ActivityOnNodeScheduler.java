@@ -0,0 +1,68 @@
+package application;
+
+/**
+ * Critical path analysis on the activity-on-node form of an OverallTask. The
+ * SubTasks are the nodes and their dependencies the arcs, so, unlike the
+ * activity-on-arrow TaskGraph, no event nodes or dummy arcs have to be built.
+ */
+public final class ActivityOnNodeScheduler {
+
+  private ActivityOnNodeScheduler() {
+  }
+
+  /**
+   * Computes the schedule of the given task from its subtasks' dependencies.
+   *
+   * @param task the task to schedule
+   * @return the earliest and latest times of every subtask of the task
+   * @throws IllegalStateException if the dependencies contain a cycle
+   */
+  public static Schedule schedule(OverallTask task) {
+    PlanTopology topology = PlanTopology.of(task);
+    return schedule(topology, topology.getDurations());
+  }
+
+  /**
+   * Computes the schedule of a topology with the given durations.
+   *
+   * @param topology the dependency structure to schedule
+   * @param duration the duration of every subtask in minutes, by index
+   * @return the times and floats of every subtask
+   */
+  public static Schedule schedule(PlanTopology topology, int[] duration) {
+    int n = topology.size();
+    int[] earliestStart = new int[n];
+    int[] latestStart = new int[n];
+    int[] freeFloat = new int[n];
+
+    //forward pass: a subtask starts once all its dependencies are finished
+    int finish = 0;
+    for (int p = 0; p < n; p++) {
+      int t = topology.getOrder(p);
+      int start = 0;
+      for (int a = topology.getFirstPred(t); a < topology.getEndPred(t); a++) {
+        int pred = topology.getPred(a);
+        start = Math.max(start, earliestStart[pred] + duration[pred]);
+      }
+      earliestStart[t] = start;
+      finish = Math.max(finish, start + duration[t]);
+    }
+
+    //backward pass: a subtask finishes before any subtask depending on it
+    for (int p = n - 1; p >= 0; p--) {
+      int t = topology.getOrder(p);
+      int latestFinish = finish;
+      int nextStart = finish;
+      for (int a = topology.getFirstSucc(t); a < topology.getEndSucc(t); a++) {
+        int succ = topology.getSucc(a);
+        latestFinish = Math.min(latestFinish, latestStart[succ]);
+        nextStart = Math.min(nextStart, earliestStart[succ]);
+      }
+      latestStart[t] = latestFinish - duration[t];
+      freeFloat[t] = nextStart - earliestStart[t] - duration[t];
+    }
+
+    return new Schedule(topology, duration, earliestStart, latestStart,
+        freeFloat, finish);
+  }
+}
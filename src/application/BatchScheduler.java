@@ -0,0 +1,106 @@
+package application;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Computes the schedules of many OverallTasks at once. The OverallTasks are
+ * independent of each other, so each is scheduled as its own task on a
+ * work-stealing pool and the whole batch takes about as long as its largest
+ * plan.
+ *
+ * The pool never reads the tasks themselves: a PlanSnapshot of each task is
+ * taken on the thread editing the tasks, one task at a time, and only the
+ * snapshots are scheduled, so the tasks can be edited while the batch runs.
+ * A schedule is only returned by OverallTask.schedule if its task has not
+ * been changed since its snapshot.
+ */
+public final class BatchScheduler {
+
+  private BatchScheduler() {
+  }
+
+  /**
+   * Schedules all the given tasks on the common pool, taking their
+   * snapshots on the calling thread.
+   *
+   * @param tasks the tasks to schedule
+   * @return the schedule of every task, in the iteration order of tasks
+   * @throws IllegalStateException if the dependencies of a task contain a
+   * cycle
+   */
+  public static Map<OverallTask, Schedule> scheduleAll(
+      Collection<OverallTask> tasks) {
+    return scheduleAll(tasks, Runnable::run, ForkJoinPool.commonPool());
+  }
+
+  /**
+   * Schedules all the given tasks on the common pool, taking their
+   * snapshots on the thread editing them. Must not be called on that thread.
+   *
+   * @param tasks the tasks to schedule
+   * @param editor the executor running on the thread editing the tasks
+   * @return the schedule of every task, in the iteration order of tasks
+   * @throws IllegalStateException if the dependencies of a task contain a
+   * cycle, or the calling thread is interrupted
+   */
+  public static Map<OverallTask, Schedule> scheduleAll(
+      Collection<OverallTask> tasks, Executor editor) {
+    return scheduleAll(tasks, editor, ForkJoinPool.commonPool());
+  }
+
+  /**
+   * Schedules all the given tasks on the given executor, taking their
+   * snapshots on the thread editing them.
+   *
+   * @param tasks the tasks to schedule
+   * @param editor the executor running on the thread editing the tasks
+   * @param executor the executor to run each schedule on
+   * @return the schedule of every task, in the iteration order of tasks
+   * @throws IllegalStateException if the dependencies of a task contain a
+   * cycle, or the calling thread is interrupted
+   */
+  public static Map<OverallTask, Schedule> scheduleAll(
+      Collection<OverallTask> tasks, Executor editor,
+      ExecutorService executor) {
+    List<OverallTask> order = new ArrayList<>(tasks);
+    List<Future<Schedule>> results = new ArrayList<>(order.size());
+    try {
+      //the snapshots are scheduled as soon as they are taken
+      for (OverallTask task : order) {
+        results.add(executor.submit(PlanSnapshot.of(task, editor)::schedule));
+      }
+    } catch (RuntimeException e) {
+      results.forEach(result -> result.cancel(false));
+      throw e;
+    }
+
+    Map<OverallTask, Schedule> schedules = new LinkedHashMap<>();
+    for (int i = 0; i < order.size(); i++) {
+      schedules.put(order.get(i), getResult(results.get(i)));
+    }
+    return schedules;
+  }
+
+  private static Schedule getResult(Future<Schedule> result) {
+    try {
+      return result.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while scheduling tasks", e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw new IllegalStateException(e.getCause());
+    }
+  }
+}
@@ -0,0 +1,135 @@
+package application;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * A growable byte array for the binary formats of the workspace, with the
+ * varint and zigzag encodings they share. Fixed-width numbers are written
+ * big-endian, like ByteBuffer reads them by default. The static methods read
+ * the same encodings back from a ByteBuffer.
+ */
+final class ByteBuilder {
+
+  private byte[] bytes;
+  private int size;
+
+  ByteBuilder(int capacity) {
+    this.bytes = new byte[Math.max(16, capacity)];
+  }
+
+  int size() {
+    return size;
+  }
+
+  void clear() {
+    size = 0;
+  }
+
+  /**
+   * @return the backing array, valid up to size() until the next write
+   */
+  byte[] array() {
+    return bytes;
+  }
+
+  void writeByte(int b) {
+    if (size == bytes.length) {
+      bytes = Arrays.copyOf(bytes, size * 2);
+    }
+    bytes[size++] = (byte) b;
+  }
+
+  void writeInt(int value) {
+    writeByte(value >>> 24);
+    writeByte(value >>> 16);
+    writeByte(value >>> 8);
+    writeByte(value);
+  }
+
+  /**
+   * Overwrites four bytes already written.
+   */
+  void setInt(int at, int value) {
+    bytes[at] = (byte) (value >>> 24);
+    bytes[at + 1] = (byte) (value >>> 16);
+    bytes[at + 2] = (byte) (value >>> 8);
+    bytes[at + 3] = (byte) value;
+  }
+
+  /**
+   * Writes the value seven bits at a time, least significant first, with
+   * the top bit of every byte but the last set.
+   */
+  void writeVarint(int value) {
+    while ((value & ~0x7F) != 0) {
+      writeByte((value & 0x7F) | 0x80);
+      value >>>= 7;
+    }
+    writeByte(value);
+  }
+
+  /**
+   * Writes a signed value as a varint, small negative values included.
+   */
+  void writeZigzag(int value) {
+    writeVarint((value << 1) ^ (value >> 31));
+  }
+
+  /**
+   * Writes the string as its varint length in bytes followed by its UTF-8
+   * bytes.
+   */
+  void writeString(String string) {
+    byte[] utf8 = string.getBytes(StandardCharsets.UTF_8);
+    writeVarint(utf8.length);
+    write(utf8, 0, utf8.length);
+  }
+
+  void write(byte[] source, int offset, int length) {
+    if (size + length > bytes.length) {
+      bytes = Arrays.copyOf(bytes, Math.max(size + length, bytes.length * 2));
+    }
+    System.arraycopy(source, offset, bytes, size, length);
+    size += length;
+  }
+
+  void writeTo(OutputStream out) throws IOException {
+    out.write(bytes, 0, size);
+  }
+
+  static int readVarint(ByteBuffer in) throws IOException {
+    int value = 0;
+    for (int shift = 0; shift < 35; shift += 7) {
+      byte b = in.get();
+      value |= (b & 0x7F) << shift;
+      if (b >= 0) {
+        return value;
+      }
+    }
+    throw new IOException("Malformed varint");
+  }
+
+  static int readZigzag(ByteBuffer in) throws IOException {
+    int value = readVarint(in);
+    return (value >>> 1) ^ -(value & 1);
+  }
+
+  /**
+   * Reads a string written by writeString from a buffer backed by an array.
+   */
+  static String readString(ByteBuffer in) throws IOException {
+    int length = readVarint(in);
+    if (length < 0 || length > in.remaining()) {
+      throw new BufferUnderflowException();
+    }
+    String string = new String(in.array(), in.arrayOffset() + in.position(),
+        length, StandardCharsets.UTF_8);
+    in.position(in.position() + length);
+    return string;
+  }
+}
@@ -0,0 +1,292 @@
+package application;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * A compiled, array-backed form of a TaskGraph. Nodes are numbered in
+ * topological order and the outgoing arcs of every node are stored in
+ * compressed sparse row form: the arcs of node i are the entries
+ * [outOffsets[i], outOffsets[i + 1]) of outTargets and outDurations.
+ *
+ * Once compiled, the forward and backward passes of the critical path
+ * analysis only touch int arrays and do not allocate.
+ */
+public final class CompiledTaskGraph {
+
+  private final TaskGraphNode[] nodes;
+  private final int[] outOffsets;
+  private final int[] outTargets;
+  private final int[] outDurations;
+  private final Task[] arcTasks;
+
+  private final int[] earliest;
+  private final int[] latest;
+
+  private CompiledTaskGraph(TaskGraphNode[] nodes, int[] outOffsets,
+                            int[] outTargets, int[] outDurations,
+                            Task[] arcTasks) {
+    this.nodes        = nodes;
+    this.outOffsets   = outOffsets;
+    this.outTargets   = outTargets;
+    this.outDurations = outDurations;
+    this.arcTasks     = arcTasks;
+    this.earliest     = new int[nodes.length];
+    this.latest       = new int[nodes.length];
+  }
+
+  /**
+   * Compiles the graph reachable from the given start node. Dummy arcs are
+   * compiled as arcs with zero duration, and arcs without a child node are
+   * ignored.
+   *
+   * @param start the start node of the TaskGraph
+   * @return the compiled graph, with its nodes in topological order
+   */
+  //PRE: Graph is acyclic
+  public static CompiledTaskGraph compile(TaskGraphNode start) {
+    //number every reachable node in discovery order
+    TaskGraph graph = start.getGraph();
+    int[] discovered = new int[graph.getNodeCount()];
+    Arrays.fill(discovered, -1);
+    List<TaskGraphNode> discoveredNodes = new ArrayList<>();
+    Deque<TaskGraphNode> toVisit = new ArrayDeque<>();
+    discovered[start.getNodeID()] = 0;
+    discoveredNodes.add(start);
+    toVisit.push(start);
+    int arcCount = 0;
+
+    while (!toVisit.isEmpty()) {
+      TaskGraphNode node = toVisit.pop();
+      for (TaskGraphArc arc : node.getOutgoingArcs()) {
+        TaskGraphNode child = arc.getChild();
+        if (child == null) {
+          continue;
+        }
+        arcCount++;
+        if (discovered[child.getNodeID()] < 0) {
+          discovered[child.getNodeID()] = discoveredNodes.size();
+          discoveredNodes.add(child);
+          toVisit.push(child);
+        }
+      }
+    }
+
+    //arcs by discovery index, used to sort the nodes
+    int n = discoveredNodes.size();
+    int[] offsets = new int[n + 1];
+    int[] targets = new int[arcCount];
+    int[] durations = new int[arcCount];
+    Task[] tasks = new Task[arcCount];
+    int[] degree = new int[n];
+    int arc = 0;
+    for (int i = 0; i < n; i++) {
+      offsets[i] = arc;
+      for (TaskGraphArc a : discoveredNodes.get(i).getOutgoingArcs()) {
+        if (a.getChild() == null) {
+          continue;
+        }
+        int target = discovered[a.getChild().getNodeID()];
+        targets[arc] = target;
+        durations[arc] = durationOf(a);
+        tasks[arc] = a.getTask();
+        degree[target]++;
+        arc++;
+      }
+    }
+    offsets[n] = arc;
+
+    //Kahn's algorithm over the discovery indices
+    int[] order = new int[n];
+    int[] rank = new int[n];
+    int head = 0;
+    int tail = 0;
+    for (int i = 0; i < n; i++) {
+      if (degree[i] == 0) {
+        order[tail++] = i;
+      }
+    }
+    while (head < tail) {
+      int node = order[head++];
+      for (int a = offsets[node]; a < offsets[node + 1]; a++) {
+        if (--degree[targets[a]] == 0) {
+          order[tail++] = targets[a];
+        }
+      }
+    }
+    if (tail != n) {
+      throw new IllegalStateException("Task graph contains a cycle");
+    }
+
+    //renumber the nodes and arcs in topological order
+    TaskGraphNode[] sortedNodes = new TaskGraphNode[n];
+    for (int i = 0; i < n; i++) {
+      rank[order[i]] = i;
+      sortedNodes[i] = discoveredNodes.get(order[i]);
+    }
+    int[] outOffsets = new int[n + 1];
+    int[] outTargets = new int[arcCount];
+    int[] outDurations = new int[arcCount];
+    Task[] arcTasks = new Task[arcCount];
+    arc = 0;
+    for (int i = 0; i < n; i++) {
+      outOffsets[i] = arc;
+      int node = order[i];
+      for (int a = offsets[node]; a < offsets[node + 1]; a++) {
+        outTargets[arc] = rank[targets[a]];
+        outDurations[arc] = durations[a];
+        arcTasks[arc] = tasks[a];
+        arc++;
+      }
+    }
+    outOffsets[n] = arc;
+
+    return new CompiledTaskGraph(sortedNodes, outOffsets, outTargets,
+        outDurations, arcTasks);
+  }
+
+  private static int durationOf(TaskGraphArc arc) {
+    if (arc.isDummy() || arc.getTask() == null) {
+      return 0;
+    }
+    return arc.getTask().getDuration().getTotalMinutes();
+  }
+
+  /**
+   * Reads the durations of the arcs again from their tasks, so that a graph
+   * compiled once can be analysed again after durations have been edited.
+   * Does not allocate.
+   */
+  public void refreshDurations() {
+    for (int a = 0; a < arcTasks.length; a++) {
+      Task task = arcTasks[a];
+      outDurations[a] = task == null ? 0 : task.getDuration().getTotalMinutes();
+    }
+  }
+
+  /**
+   * Computes the earliest completion time of every node, in minutes from
+   * the start of the graph.
+   */
+  public void forwardPass() {
+    //post: earliest[i] is the maximum, over all incoming arcs, of the
+    //      earliest completion time of the arc's parent plus its duration,
+    //      or zero if node i has no incoming arcs.
+    int[] earliest = this.earliest;
+    int[] outOffsets = this.outOffsets;
+    int[] outTargets = this.outTargets;
+    int[] outDurations = this.outDurations;
+    int n = earliest.length;
+
+    for (int i = 0; i < n; i++) {
+      earliest[i] = 0;
+    }
+    for (int i = 0; i < n; i++) {
+      int time = earliest[i];
+      for (int a = outOffsets[i]; a < outOffsets[i + 1]; a++) {
+        int candidate = time + outDurations[a];
+        if (candidate > earliest[outTargets[a]]) {
+          earliest[outTargets[a]] = candidate;
+        }
+      }
+    }
+  }
+
+  /**
+   * Computes the latest completion time of every node, in minutes from the
+   * start of the graph. Requires the forward pass to have been run.
+   */
+  public void backwardPass() {
+    //post: latest[i] is the minimum, over all outgoing arcs, of the latest
+    //      completion time of the arc's child minus its duration, or the
+    //      project duration if node i has no outgoing arcs.
+    int[] latest = this.latest;
+    int[] outOffsets = this.outOffsets;
+    int[] outTargets = this.outTargets;
+    int[] outDurations = this.outDurations;
+    int projectDuration = getProjectDuration();
+
+    for (int i = latest.length - 1; i >= 0; i--) {
+      int time = projectDuration;
+      for (int a = outOffsets[i]; a < outOffsets[i + 1]; a++) {
+        int candidate = latest[outTargets[a]] - outDurations[a];
+        if (candidate < time) {
+          time = candidate;
+        }
+      }
+      latest[i] = time;
+    }
+  }
+
+  /**
+   * Copies the computed times, in minutes from the start of the graph, back
+   * into the per-node arrays of the TaskGraph.
+   */
+  public void writeBack() {
+    for (int i = 0; i < nodes.length; i++) {
+      TaskGraphNode node = nodes[i];
+      node.getGraph().setCompletionMinutes(node.getNodeID(), earliest[i],
+          latest[i]);
+    }
+  }
+
+  /**
+   * @return the length of the longest path of the graph, in minutes. Only
+   * valid after the forward pass.
+   */
+  public int getProjectDuration() {
+    int duration = 0;
+    for (int time : earliest) {
+      if (time > duration) {
+        duration = time;
+      }
+    }
+    return duration;
+  }
+
+  public int getNodeCount() {
+    return nodes.length;
+  }
+
+  public int getArcCount() {
+    return outTargets.length;
+  }
+
+  public TaskGraphNode getNode(int node) {
+    return nodes[node];
+  }
+
+  public int getEarliestCompletionTime(int node) {
+    return earliest[node];
+  }
+
+  public int getLatestCompletionTime(int node) {
+    return latest[node];
+  }
+
+  public int getFirstArc(int node) {
+    return outOffsets[node];
+  }
+
+  public int getEndArc(int node) {
+    return outOffsets[node + 1];
+  }
+
+  public int getArcTarget(int arc) {
+    return outTargets[arc];
+  }
+
+  public int getArcDuration(int arc) {
+    return outDurations[arc];
+  }
+
+  /**
+   * @return the task on the given arc, or null if the arc is a dummy
+   */
+  public Task getArcTask(int arc) {
+    return arcTasks[arc];
+  }
+}
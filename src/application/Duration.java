@@ -12,6 +12,10 @@ public final class Duration {
     this.minutes = minutes;
   }
 
+  public static Duration ofMinutes(int minutes) {
+    return new Duration(minutes / MINUTES_IN_HOUR, minutes % MINUTES_IN_HOUR);
+  }
+
   public int getHours() {
     return hours;
   }
@@ -25,7 +29,26 @@ public final class Duration {
   }
 
   public int getTotalSeconds() {
-    return (hours * MINUTES_IN_HOUR) + (SECONDS_IN_MIN * minutes);
+    return SECONDS_IN_MIN * getTotalMinutes();
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (o == null || getClass() != o.getClass()) {
+      return false;
+    }
+
+    Duration that = (Duration) o;
+
+    return getTotalMinutes() == that.getTotalMinutes();
+  }
+
+  @Override
+  public int hashCode() {
+    return getTotalMinutes();
   }
 
   @Override
@@ -34,14 +57,6 @@ public final class Duration {
   }
 
   public Time getEndTime(Time startTime) {
-    int endHour = startTime.getHours()    + hours;
-    int endMin  = startTime.getMinutes()  + minutes;
-
-    if (endMin >= MINUTES_IN_HOUR) {
-      endHour++;
-      endMin -= MINUTES_IN_HOUR;
-    }
-
-    return new Time(endHour, endMin);
+    return startTime.addDuration(this);
   }
 }
@@ -0,0 +1,130 @@
+package application;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * What a TaskImporter did: how many rows it read and subtasks and
+ * dependencies it created, and the problems it skipped over. Each problem is
+ * described by a message starting with the line it was found on.
+ */
+public final class ImportReport {
+
+  /** Number of problems of each kind that are described, the rest are only
+   * counted*/
+  public static final int MAX_MESSAGES = 100;
+
+  private int rowCount;
+  private int subTaskCount;
+  private int dependencyCount;
+  private final List<String> rowErrors = new ArrayList<>();
+  private int rowErrorCount;
+  private final List<String> unknownNames = new ArrayList<>();
+  private int unknownNameCount;
+  private final List<String> cycles = new ArrayList<>();
+  private int cycleCount;
+
+  ImportReport() {
+  }
+
+  /**
+   * @return the number of rows read, including those that were skipped
+   */
+  public int getRowCount() {
+    return rowCount;
+  }
+
+  /**
+   * @return the number of subtasks created
+   */
+  public int getSubTaskCount() {
+    return subTaskCount;
+  }
+
+  /**
+   * @return the number of dependencies added
+   */
+  public int getDependencyCount() {
+    return dependencyCount;
+  }
+
+  /**
+   * @return the rows that were skipped because they are malformed, have no
+   * name or duration, or repeat the name of an earlier row
+   */
+  public List<String> getRowErrors() {
+    return Collections.unmodifiableList(rowErrors);
+  }
+
+  public int getRowErrorCount() {
+    return rowErrorCount;
+  }
+
+  /**
+   * @return the dependencies that were skipped because no row, and no
+   * subtask of the task, has their name
+   */
+  public List<String> getUnknownNames() {
+    return Collections.unmodifiableList(unknownNames);
+  }
+
+  public int getUnknownNameCount() {
+    return unknownNameCount;
+  }
+
+  /**
+   * @return the dependencies that were skipped because they would have
+   * closed a cycle
+   */
+  public List<String> getCycles() {
+    return Collections.unmodifiableList(cycles);
+  }
+
+  public int getCycleCount() {
+    return cycleCount;
+  }
+
+  public boolean hasProblems() {
+    return rowErrorCount + unknownNameCount + cycleCount > 0;
+  }
+
+  void rowRead() {
+    rowCount++;
+  }
+
+  void subTasksCreated(int count) {
+    subTaskCount += count;
+  }
+
+  void dependencyAdded() {
+    dependencyCount++;
+  }
+
+  void rowError(int line, String message) {
+    if (rowErrorCount++ < MAX_MESSAGES) {
+      rowErrors.add("Line " + line + ": " + message);
+    }
+  }
+
+  void unknownName(int line, String name) {
+    if (unknownNameCount++ < MAX_MESSAGES) {
+      unknownNames.add("Line " + line + ": unknown dependency " + name);
+    }
+  }
+
+  void cycle(int line, String dependant, String dependency) {
+    if (cycleCount++ < MAX_MESSAGES) {
+      cycles.add("Line " + line + ": " + dependency + " already depends on "
+          + dependant);
+    }
+  }
+
+  @Override
+  public String toString() {
+    return rowCount + " rows, " + subTaskCount + " subtasks and "
+        + dependencyCount + " dependencies imported; " + rowErrorCount
+        + " rows skipped, " + unknownNameCount + " unknown dependencies, "
+        + cycleCount + " dependencies closing a cycle";
+  }
+}
@@ -0,0 +1,219 @@
+package application;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Keeps the critical path analysis of an OverallTask resident and updates it
+ * when the duration of a single SubTask changes.
+ *
+ * For every subtask it stores the head, the earliest start time, and the
+ * tail, the length of the longest path from the start of the subtask to the
+ * end of the plan. Latest times and floats are derived from these and the
+ * finish time of the plan, so a duration change only has to re-propagate
+ * heads to the descendants of the edited subtask and tails to its
+ * ancestors.
+ *
+ * The structure of the plan is fixed when the engine is created; after
+ * adding or removing subtasks or dependencies a new engine has to be built.
+ */
+public final class IncrementalCriticalPath {
+
+  private final PlanTopology topology;
+  private final int[] duration;
+  private final int[] head;
+  private final int[] tail;
+  private final boolean[] critical;
+  private final BitSet dirty;
+  private int finish;
+
+  public IncrementalCriticalPath(OverallTask task) {
+    this.topology = PlanTopology.of(task);
+    this.duration = topology.getDurations();
+    this.head     = new int[topology.size()];
+    this.tail     = new int[topology.size()];
+    this.critical = new boolean[topology.size()];
+    this.dirty    = new BitSet(topology.size());
+    recompute();
+  }
+
+  /**
+   * Recomputes every time from scratch.
+   */
+  public void recompute() {
+    int n = topology.size();
+    for (int p = 0; p < n; p++) {
+      int t = topology.getOrder(p);
+      head[t] = computeHead(t);
+    }
+    finish = 0;
+    for (int p = n - 1; p >= 0; p--) {
+      int t = topology.getOrder(p);
+      tail[t] = computeTail(t);
+      finish = Math.max(finish, head[t] + tail[t]);
+    }
+    for (int t = 0; t < n; t++) {
+      critical[t] = head[t] + tail[t] == finish;
+    }
+  }
+
+  /**
+   * Changes the duration of a subtask, and updates the times affected by the
+   * change.
+   *
+   * @param subTask the subtask whose duration changes
+   * @param newDuration the new duration of the subtask
+   * @return the subtasks that became critical or stopped being critical
+   */
+  public List<SubTask> updateDuration(SubTask subTask, Duration newDuration) {
+    int changed = indexOf(subTask);
+    subTask.setDuration(newDuration);
+    int minutes = newDuration.getTotalMinutes();
+    List<SubTask> flipped = new ArrayList<>();
+    if (duration[changed] == minutes) {
+      return flipped;
+    }
+    duration[changed] = minutes;
+
+    //forward: the heads of the successors, in topological order
+    BitSet touched = new BitSet(topology.size());
+    markSuccessors(changed);
+    for (int p = dirty.nextSetBit(0); p >= 0; p = dirty.nextSetBit(p + 1)) {
+      dirty.clear(p);
+      int t = topology.getOrder(p);
+      int newHead = computeHead(t);
+      if (newHead != head[t]) {
+        head[t] = newHead;
+        touched.set(t);
+        markSuccessors(t);
+      }
+    }
+
+    //backward: the tail of the subtask and its predecessors, in reverse order
+    boolean rescanFinish = false;
+    int newFinish = finish;
+    dirty.set(topology.getPosition(changed));
+    for (int p = dirty.previousSetBit(topology.size() - 1); p >= 0;
+         p = dirty.previousSetBit(p - 1)) {
+      dirty.clear(p);
+      int t = topology.getOrder(p);
+      int newTail = computeTail(t);
+      if (newTail != tail[t]) {
+        if (head[t] + tail[t] == finish && head[t] + newTail < finish) {
+          //a path that defined the finish time got shorter
+          rescanFinish = true;
+        }
+        tail[t] = newTail;
+        touched.set(t);
+        newFinish = Math.max(newFinish, head[t] + newTail);
+        markPredecessors(t);
+      }
+    }
+    for (int t = touched.nextSetBit(0); t >= 0; t = touched.nextSetBit(t + 1)) {
+      newFinish = Math.max(newFinish, head[t] + tail[t]);
+    }
+    if (rescanFinish) {
+      newFinish = 0;
+      for (int t = 0; t < topology.size(); t++) {
+        if (topology.getFirstPred(t) == topology.getEndPred(t)) {
+          newFinish = Math.max(newFinish, tail[t]);
+        }
+      }
+    }
+
+    //criticality can change everywhere if the finish time moved
+    if (newFinish != finish) {
+      finish = newFinish;
+      for (int t = 0; t < topology.size(); t++) {
+        updateCriticality(t, flipped);
+      }
+    } else {
+      for (int t = touched.nextSetBit(0); t >= 0; t = touched.nextSetBit(t + 1)) {
+        updateCriticality(t, flipped);
+      }
+      updateCriticality(changed, flipped);
+    }
+    return flipped;
+  }
+
+  private void updateCriticality(int t, List<SubTask> flipped) {
+    boolean isCritical = head[t] + tail[t] == finish;
+    if (isCritical != critical[t]) {
+      critical[t] = isCritical;
+      flipped.add(topology.getTask(t));
+    }
+  }
+
+  private int computeHead(int t) {
+    int time = 0;
+    for (int a = topology.getFirstPred(t); a < topology.getEndPred(t); a++) {
+      int pred = topology.getPred(a);
+      time = Math.max(time, head[pred] + duration[pred]);
+    }
+    return time;
+  }
+
+  private int computeTail(int t) {
+    int time = 0;
+    for (int a = topology.getFirstSucc(t); a < topology.getEndSucc(t); a++) {
+      time = Math.max(time, tail[topology.getSucc(a)]);
+    }
+    return time + duration[t];
+  }
+
+  private void markSuccessors(int t) {
+    for (int a = topology.getFirstSucc(t); a < topology.getEndSucc(t); a++) {
+      dirty.set(topology.getPosition(topology.getSucc(a)));
+    }
+  }
+
+  private void markPredecessors(int t) {
+    for (int a = topology.getFirstPred(t); a < topology.getEndPred(t); a++) {
+      dirty.set(topology.getPosition(topology.getPred(a)));
+    }
+  }
+
+  private int indexOf(SubTask subTask) {
+    int index = topology.indexOf(subTask);
+    if (index < 0) {
+      throw new IllegalArgumentException(subTask.getTaskName()
+          + " is not a subtask of this plan");
+    }
+    return index;
+  }
+
+  /**
+   * @return the time needed to complete the whole plan, in minutes
+   */
+  public int getFinishTime() {
+    return finish;
+  }
+
+  public int getEarliestStart(SubTask subTask) {
+    return head[indexOf(subTask)];
+  }
+
+  public int getEarliestFinish(SubTask subTask) {
+    int t = indexOf(subTask);
+    return head[t] + duration[t];
+  }
+
+  public int getLatestStart(SubTask subTask) {
+    return finish - tail[indexOf(subTask)];
+  }
+
+  public int getLatestFinish(SubTask subTask) {
+    int t = indexOf(subTask);
+    return finish - tail[t] + duration[t];
+  }
+
+  public int getTotalFloat(SubTask subTask) {
+    int t = indexOf(subTask);
+    return finish - head[t] - tail[t];
+  }
+
+  public boolean isCritical(SubTask subTask) {
+    return critical[indexOf(subTask)];
+  }
+}
@@ -0,0 +1,85 @@
+package application;
+
+import java.util.Arrays;
+
+/**
+ * A binary min-heap of int items ordered by long keys, stored in two
+ * parallel primitive arrays so that pushing and popping do not allocate.
+ * Items with equal keys are popped in no particular order; callers that need
+ * a deterministic order fold a tie-breaker into the key.
+ */
+final class IntHeap {
+
+  private int[] items;
+  private long[] keys;
+  private int size;
+
+  IntHeap(int capacity) {
+    this.items = new int[Math.max(1, capacity)];
+    this.keys  = new long[items.length];
+  }
+
+  int size() {
+    return size;
+  }
+
+  boolean isEmpty() {
+    return size == 0;
+  }
+
+  void clear() {
+    size = 0;
+  }
+
+  void push(int item, long key) {
+    if (size == items.length) {
+      items = Arrays.copyOf(items, size * 2);
+      keys = Arrays.copyOf(keys, size * 2);
+    }
+    //sift up
+    int i = size++;
+    while (i > 0) {
+      int parent = (i - 1) >>> 1;
+      if (keys[parent] <= key) {
+        break;
+      }
+      items[i] = items[parent];
+      keys[i] = keys[parent];
+      i = parent;
+    }
+    items[i] = item;
+    keys[i] = key;
+  }
+
+  int peek() {
+    return items[0];
+  }
+
+  long peekKey() {
+    return keys[0];
+  }
+
+  int pop() {
+    int top = items[0];
+    int item = items[--size];
+    long key = keys[size];
+    //sift down
+    int i = 0;
+    int half = size >>> 1;
+    while (i < half) {
+      int child = 2 * i + 1;
+      if (child + 1 < size && keys[child + 1] < keys[child]) {
+        child++;
+      }
+      if (key <= keys[child]) {
+        break;
+      }
+      items[i] = items[child];
+      keys[i] = keys[child];
+      i = child;
+    }
+    items[i] = item;
+    keys[i] = key;
+    return top;
+  }
+}
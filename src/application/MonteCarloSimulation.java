@@ -0,0 +1,262 @@
+package application;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Monte Carlo simulation of the finish time of an OverallTask whose subtasks
+ * have uncertain durations. The duration of a subtask with a three point
+ * estimate is drawn from the beta-PERT distribution over [optimistic,
+ * pessimistic] with the most likely duration as its mode; subtasks without
+ * an estimate keep their duration.
+ *
+ * Every sample runs the forward and backward passes of the critical path
+ * analysis on the PlanTopology of the task, BLOCK samples at a time as the
+ * scenarios of a ScenarioBatch. The samples are split into one
+ * batch per worker of the pool. Each batch has its own SplittableRandom,
+ * split from the seed so that results are reproducible for a given pool
+ * size, and its own ScenarioBatch, allocated once and reused for all its
+ * samples.
+ */
+public final class MonteCarloSimulation {
+
+  /** Number of samples evaluated together in one ScenarioBatch*/
+  private static final int BLOCK = 64;
+
+  private final PlanTopology topology;
+  private final ScenarioEvaluator evaluator;
+  //the durations of the subtasks when the simulation was created, which
+  //subtasks without an estimate keep whatever they are changed to since
+  private final int[] baseDuration;
+  //per subtask: optimistic duration, pessimistic minus optimistic, and the
+  //shape parameters of the beta distribution. A range of 0 is a fixed
+  //duration.
+  private final int[] optimistic;
+  private final int[] range;
+  private final double[] alpha;
+  private final double[] beta;
+
+  public MonteCarloSimulation(OverallTask task) {
+    this(task, ScenarioEvaluator.getDefault());
+  }
+
+  public MonteCarloSimulation(OverallTask task, ScenarioEvaluator evaluator) {
+    this.topology     = PlanTopology.of(task);
+    this.evaluator    = evaluator;
+    this.baseDuration = topology.getDurations();
+    int n             = topology.size();
+    this.optimistic   = new int[n];
+    this.range        = new int[n];
+    this.alpha        = new double[n];
+    this.beta         = new double[n];
+    for (int t = 0; t < n; t++) {
+      SubTask subTask = topology.getTask(t);
+      int mostLikely = baseDuration[t];
+      int low = Math.min(mostLikely,
+          subTask.getOptimisticDuration().getTotalMinutes());
+      int high = Math.max(mostLikely,
+          subTask.getPessimisticDuration().getTotalMinutes());
+      optimistic[t] = low;
+      range[t] = high - low;
+      if (range[t] > 0) {
+        alpha[t] = 1 + 4.0 * (mostLikely - low) / range[t];
+        beta[t] = 1 + 4.0 * (high - mostLikely) / range[t];
+      }
+    }
+  }
+
+  public PlanTopology getTopology() {
+    return topology;
+  }
+
+  /**
+   * Runs the simulation on the common pool.
+   *
+   * @param samples the number of samples to draw
+   * @param seed the seed of the random durations
+   * @return the distribution of the finish time and the criticality indices
+   */
+  public SimulationResult run(int samples, long seed) {
+    return run(samples, seed, ForkJoinPool.commonPool());
+  }
+
+  /**
+   * Runs the simulation on the given pool.
+   *
+   * @param samples the number of samples to draw
+   * @param seed the seed of the random durations
+   * @param pool the pool to run the batches of samples on
+   * @return the distribution of the finish time and the criticality indices
+   */
+  public SimulationResult run(int samples, long seed, ForkJoinPool pool) {
+    if (samples <= 0) {
+      throw new IllegalArgumentException("At least one sample is needed");
+    }
+    int batches = Math.min(samples, pool.getParallelism());
+    int[] finishTimes = new int[samples];
+    SplittableRandom random = new SplittableRandom(seed);
+    List<Batch> work = new ArrayList<>(batches);
+    for (int b = 0; b < batches; b++) {
+      int from = (int) ((long) samples * b / batches);
+      int to = (int) ((long) samples * (b + 1) / batches);
+      work.add(new Batch(random.split(), finishTimes, from, to));
+    }
+
+    if (batches == 1) {
+      work.get(0).compute();
+    } else {
+      pool.invoke(new RecursiveAction() {
+        @Override
+        protected void compute() {
+          invokeAll(work);
+        }
+      });
+    }
+
+    int[] criticalCount = new int[topology.size()];
+    for (Batch batch : work) {
+      for (int t = 0; t < criticalCount.length; t++) {
+        criticalCount[t] += batch.criticalCount[t];
+      }
+    }
+    Arrays.sort(finishTimes);
+    return new SimulationResult(topology, finishTimes, criticalCount);
+  }
+
+  /**
+   * Draws the samples [from, to), writing their finish times into the shared
+   * array, which batches never write at the same index. The samples are
+   * evaluated BLOCK at a time as the scenarios of one ScenarioBatch.
+   */
+  private final class Batch extends RecursiveAction {
+
+    private static final long serialVersionUID = 1L;
+
+    private final SplittableRandom random;
+    private final int[] finishTimes;
+    private final int from;
+    private final int to;
+    private final ScenarioBatch block;
+    private final int[] criticalCount;
+
+    Batch(SplittableRandom random, int[] finishTimes, int from, int to) {
+      this.random        = random;
+      this.finishTimes   = finishTimes;
+      this.from          = from;
+      this.to            = to;
+      this.block         = new ScenarioBatch(topology, baseDuration,
+          Math.min(BLOCK, to - from));
+      this.criticalCount = new int[topology.size()];
+    }
+
+    @Override
+    protected void compute() {
+      int n = topology.size();
+      int k = block.getScenarioCount();
+      for (int first = from; first < to; first += k) {
+        //the scenarios past count in the last block are evaluated with their
+        //old durations and ignored
+        int count = Math.min(k, to - first);
+        for (int t = 0; t < n; t++) {
+          if (range[t] == 0) {
+            continue;
+          }
+          for (int s = 0; s < count; s++) {
+            block.setDuration(t, s, optimistic[t]
+                + (int) Math.round(range[t] * nextBeta(alpha[t], beta[t])));
+          }
+        }
+        evaluator.evaluate(block);
+        for (int s = 0; s < count; s++) {
+          finishTimes[first + s] = block.getFinishTime(s);
+        }
+        for (int t = 0; t < n; t++) {
+          for (int s = 0; s < count; s++) {
+            if (block.isCritical(t, s)) {
+              criticalCount[t]++;
+            }
+          }
+        }
+      }
+    }
+
+    private double nextBeta(double a, double b) {
+      double x = nextGamma(a);
+      return x / (x + nextGamma(b));
+    }
+
+    //Marsaglia and Tsang's method, for shape >= 1
+    private double nextGamma(double shape) {
+      double d = shape - 1.0 / 3;
+      double c = 1 / Math.sqrt(9 * d);
+      while (true) {
+        double x;
+        double v;
+        do {
+          x = nextGaussian();
+          v = 1 + c * x;
+        } while (v <= 0);
+        v = v * v * v;
+        double u = random.nextDouble();
+        if (u < 1 - 0.0331 * x * x * x * x
+            || Math.log(u) < 0.5 * x * x + d * (1 - v + Math.log(v))) {
+          return d * v;
+        }
+      }
+    }
+
+    //Marsaglia's polar method, discarding the second value
+    private double nextGaussian() {
+      double u;
+      double v;
+      double s;
+      do {
+        u = 2 * random.nextDouble() - 1;
+        v = 2 * random.nextDouble() - 1;
+        s = u * u + v * v;
+      } while (s >= 1 || s == 0);
+      return u * Math.sqrt(-2 * Math.log(s) / s);
+    }
+  }
+
+  //Benchmark and sanity check on a generated plan
+  public static void main(String[] args) {
+    int size = args.length > 0 ? Integer.parseInt(args[0]) : 1_000;
+    int samples = args.length > 1 ? Integer.parseInt(args[1]) : 20_000;
+    SplittableRandom random = new SplittableRandom(7);
+
+    OverallTask task = new OverallTask("Simulation", new Duration(0, 0),
+        new Time(9, 0));
+    SubTask[] subTasks = new SubTask[size];
+    for (int i = 0; i < size; i++) {
+      int mostLikely = 10 + random.nextInt(50);
+      subTasks[i] = new SubTask("Task " + i, new Duration(0, mostLikely));
+      subTasks[i].setEstimate(Duration.ofMinutes(mostLikely / 2),
+          Duration.ofMinutes(mostLikely), Duration.ofMinutes(mostLikely * 3));
+      for (int d = 0; d < 2 && i > 0; d++) {
+        SubTask dep = subTasks[Math.max(0, i - 1 - random.nextInt(20))];
+        if (!subTasks[i].getDependencies().contains(dep)) {
+          subTasks[i].addDependency(dep);
+        }
+      }
+      task.addSubTask(subTasks[i]);
+    }
+
+    MonteCarloSimulation simulation = new MonteCarloSimulation(task);
+    System.out.println("Deterministic finish: "
+        + task.schedule().getFinishTime() + " min, vectorised: "
+        + simulation.evaluator.isVectorised());
+    for (int round = 0; round < 3; round++) {
+      long start = System.nanoTime();
+      SimulationResult result = simulation.run(samples, 42);
+      long time = System.nanoTime() - start;
+      System.out.printf("P10 %d, P50 %d, P90 %d min; %.1fM task-samples/s%n",
+          result.getPercentile(10), result.getPercentile(50),
+          result.getPercentile(90), (double) size * samples / time * 1e3);
+    }
+  }
+}
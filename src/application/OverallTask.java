@@ -1,14 +1,37 @@
 package application;
 
-import java.util.HashSet;
-import java.util.Set;
-import java.util.stream.Collectors;
+import java.io.IOException;
+import java.util.*;
 
 public class OverallTask extends Task {
 
   private Time startTime;
   private String description = "";
   private final Set<SubTask> subTasks;
+  private final Map<String, SubTask> subTasksByName = new HashMap<>();
+  private TaskGraph taskGraph;
+  private int nextTopologicalOrder = 0;
+  private SubTask[] subTasksById = new SubTask[16];
+  private int subTaskIdLimit = 0;
+  private int[] freeIds = new int[16];
+  private int freeIdCount = 0;
+  private int hands = 1;
+  private PlanListener listener;
+
+  //where the subtasks are read from while they are not in memory, see load;
+  //loaded is only set once they have all been read, so a thread seeing it
+  //set sees them all
+  private volatile boolean loaded = true;
+  private boolean loading;
+  private WorkspaceFile source;
+  private int sourcePlan;
+  //counts the changes to the subtasks; the source is up to date as long as
+  //the count is the one it was saved with
+  private int version;
+  private int savedVersion;
+  private PlanCache cache;
+  //the schedule of the task kept by a ScheduleCache, guarded by the cache
+  private ScheduleCache.Entry scheduleEntry;
 
   public OverallTask(String name, Duration duration, Time startTime) {
     super(name, duration);
@@ -29,19 +52,669 @@ public class OverallTask extends Task {
 
   public void setDescription(String description) {
     this.description = description;
+    if (listener != null) {
+      listener.planChanged(this);
+    }
+  }
+
+  @Override
+  public void setName(String name) {
+    super.setName(name);
+    if (listener != null) {
+      listener.planChanged(this);
+    }
+  }
+
+  @Override
+  public void setDuration(Duration duration) {
+    super.setDuration(duration);
+    if (listener != null) {
+      listener.planChanged(this);
+    }
+  }
+
+  /**
+   * Sets the listener told about every change to this task and its
+   * subtasks, replacing the previous one.
+   *
+   * @param listener the listener, or null for none
+   */
+  public void setPlanListener(PlanListener listener) {
+    this.listener = listener;
+  }
+
+  public PlanListener getPlanListener() {
+    return listener;
+  }
+
+  /**
+   * @return the number of subtasks needing one hand each that can be
+   * carried out at the same time, 1 unless set otherwise
+   */
+  public int getHands() {
+    return hands;
+  }
+
+  /**
+   * @throws IllegalArgumentException if hands is not positive
+   */
+  public void setHands(int hands) {
+    if (hands < 1) {
+      throw new IllegalArgumentException("A task needs at least one hand");
+    }
+    this.hands = hands;
+    if (listener != null) {
+      listener.planChanged(this);
+    }
   }
 
   public Set<SubTask> getAllSubTasks() {
+    ensureLoaded();
     return subTasks;
   }
 
   public void addSubTask(SubTask task) {
+    ensureLoaded();
+    version++;
+    register(task);
     subTasks.add(task);
+    invalidateTaskGraph();
+    if (listener != null) {
+      listener.topLevelAdded(this, task);
+    }
   }
 
   public void removeSubTask(SubTask task) {
-      subTasks.remove(task);
+    ensureLoaded();
+    if (subTasks.remove(task)) {
+      version++;
+      if (listener != null) {
+        listener.topLevelRemoved(this, task);
+      }
+      releaseIfUnreachable(task);
+    }
+    invalidateTaskGraph();
+  }
+
+  /**
+   * Removes the subtask from this task: it stops being a top level subtask
+   * and is removed from the dependencies of every subtask depending on it, in
+   * a single pass over its parents. Its own dependencies are kept if other
+   * subtasks still reach them.
+   *
+   * @param task the subtask to remove
+   */
+  public void detachSubTask(SubTask task) {
+    ensureLoaded();
+    version++;
+    if (listener != null && task.getOwner() == this) {
+      listener.subTaskDetached(this, task);
+    }
+    subTasks.remove(task);
+    task.detachFromParents();
+    releaseIfUnreachable(task);
+    invalidateTaskGraph();
+  }
+
+  /**
+   * Returns the subtask of this task with the given name, at any depth of
+   * the dependencies. The lookup uses the name index of the task, which is
+   * kept up to date as subtasks are added, removed and renamed.
+   *
+   * @param taskName the name of the subtask
+   * @return the subtask with the given name, or null if there is none
+   */
+  public SubTask findSubTask(String taskName) {
+    ensureLoaded();
+    return subTasksByName.get(taskName);
+  }
+
+  /**
+   * Returns the subtask of this task with the given ID.
+   *
+   * @param id an ID lower than getSubTaskIdLimit()
+   * @return the subtask with the ID, or null if the ID is not in use
+   */
+  public SubTask getSubTask(int id) {
+    ensureLoaded();
+    return subTasksById[id];
+  }
+
+  /**
+   * @return an upper bound (exclusive) of the IDs of the subtasks of this
+   * task, to size arrays indexed by subtask ID
+   */
+  public int getSubTaskIdLimit() {
+    ensureLoaded();
+    return subTaskIdLimit;
+  }
+
+  /**
+   * @return the number of subtasks of this task, at any depth. Does not
+   * load the subtasks if they are not in memory.
+   */
+  public int getSubTaskCount() {
+    return loaded ? subTaskIdLimit - freeIdCount
+        : source.getSubTaskCount(sourcePlan);
+  }
+
+  /**
+   * Makes the subtasks of the task be read from the plan of a workspace
+   * file the first time they are needed, instead of now. The task must have
+   * no subtasks yet.
+   */
+  void loadLater(WorkspaceFile file, int plan) {
+    if (subTaskIdLimit > 0) {
+      throw new IllegalStateException(getTaskName() + " has subtasks");
+    }
+    loaded       = false;
+    source       = file;
+    sourcePlan   = plan;
+    savedVersion = version;
+  }
+
+  /**
+   * @return whether the subtasks of this task are in memory, see
+   * WorkspaceFile.readSummaries
+   */
+  public boolean isLoaded() {
+    return loaded;
+  }
+
+  /**
+   * @return whether the subtasks of this task can be unloaded, because they
+   * are saved to a workspace file as they are
+   */
+  public boolean isSaved() {
+    return source != null && version == savedVersion;
+  }
+
+  WorkspaceFile getSource() {
+    return source;
+  }
+
+  int getSourcePlan() {
+    return sourcePlan;
+  }
+
+  /**
+   * @return the count of changes made to the subtasks, to tell later
+   * whether they have changed since
+   */
+  int getVersion() {
+    return version;
+  }
+
+  /**
+   * Records that the subtasks, as they were at the given version, have been
+   * saved to the plan of a workspace file, which they can be read back from
+   * once unloaded. Nothing is recorded if they have changed since.
+   */
+  void saved(WorkspaceFile file, int plan, int version) {
+    if (this.version == version) {
+      source       = file;
+      sourcePlan   = plan;
+      savedVersion = version;
+    }
+  }
+
+  void setCache(PlanCache cache) {
+    this.cache = cache;
+  }
+
+  ScheduleCache.Entry getScheduleEntry() {
+    return scheduleEntry;
+  }
+
+  void setScheduleEntry(ScheduleCache.Entry scheduleEntry) {
+    this.scheduleEntry = scheduleEntry;
+  }
+
+  /**
+   * @return the cache managing the subtasks of this task, or null if none
+   */
+  public PlanCache getPlanCache() {
+    return cache;
+  }
+
+  private void ensureLoaded() {
+    //the cache is told outside of the lock, as it unloads plans holding its
+    //own lock
+    if (!loaded && load() && cache != null) {
+      cache.loaded(this);
+    }
+  }
+
+  /**
+   * Reads the subtasks from the source. Listeners are not told about them,
+   * since they are not a change to the task. Other threads needing the
+   * subtasks wait until all of them are read; the thread reading them
+   * passes straight through, as adding them needs them loaded.
+   *
+   * @return whether the subtasks were read by this call
+   * @throws IllegalStateException if the subtasks cannot be read
+   */
+  private synchronized boolean load() {
+    if (loaded || loading) {
+      return false;
+    }
+    loading = true;
+    PlanListener listener = this.listener;
+    this.listener = null;
+    try {
+      source.readSubTasks(sourcePlan, this);
+    } catch (IOException e) {
+      discardSubTasks();
+      throw new IllegalStateException("Cannot read the subtasks of "
+          + getTaskName(), e);
+    } finally {
+      this.listener = listener;
+      loading = false;
+    }
+    savedVersion = version;
+    loaded = true;
+    return true;
+  }
+
+  /**
+   * Drops the subtasks from memory, to be read again from the source when
+   * they are next needed. The dropped subtasks no longer belong to the
+   * task.
+   *
+   * @throws IllegalStateException unless the subtasks are saved
+   */
+  synchronized void unload() {
+    if (source == null) {
+      throw new IllegalStateException(getTaskName() + " is not saved");
+    }
+    loaded = false;
+    discardSubTasks();
+  }
+
+  private void discardSubTasks() {
+    for (int id = 0; id < subTaskIdLimit; id++) {
+      SubTask task = subTasksById[id];
+      if (task != null) {
+        task.setOwner(null);
+        task.setId(NO_ID);
+      }
+    }
+    subTasks.clear();
+    subTasksByName.clear();
+    subTasksById = new SubTask[16];
+    subTaskIdLimit = 0;
+    freeIdCount = 0;
+    nextTopologicalOrder = 0;
+    taskGraph = null;
+  }
+
+  /**
+   * Adds the subtask and all the subtasks it depends on to the name index,
+   * and makes this task their owner. Newly added subtasks are given a
+   * topological order after all of their dependencies.
+   *
+   * @throws IllegalArgumentException if the subtask or one it depends on
+   * belongs to another task
+   */
+  void register(SubTask task) {
+    if (task.getOwner() == this) {
+      return;
     }
+    checkOwners(task);
+    //iterative post order, so dependencies are ordered before dependants
+    Deque<SubTask> path = new ArrayDeque<>();
+    Deque<Iterator<SubTask>> pending = new ArrayDeque<>();
+    claim(task);
+    path.push(task);
+    pending.push(task.getDependencies().iterator());
+    while (!path.isEmpty()) {
+      Iterator<SubTask> deps = pending.peek();
+      if (deps.hasNext()) {
+        SubTask dep = deps.next();
+        if (dep.getOwner() != this) {
+          claim(dep);
+          path.push(dep);
+          pending.push(dep.getDependencies().iterator());
+        }
+      } else {
+        pending.pop();
+        SubTask added = path.pop();
+        added.setTopologicalOrder(nextTopologicalOrder++);
+        if (listener != null) {
+          listener.subTaskAdded(this, added);
+        }
+      }
+    }
+  }
+
+  //checked before anything is claimed, so a refused subtask leaves this
+  //task as it was
+  private void checkOwners(SubTask task) {
+    Set<SubTask> visited = new HashSet<>();
+    Deque<SubTask> toVisit = new ArrayDeque<>();
+    toVisit.push(task);
+    while (!toVisit.isEmpty()) {
+      SubTask t = toVisit.pop();
+      if (t.getOwner() == this || !visited.add(t)) {
+        continue;
+      }
+      if (t.getOwner() != null) {
+        throw new IllegalArgumentException(t.getTaskName()
+            + " belongs to another task");
+      }
+      t.getDependencies().forEach(toVisit::push);
+    }
+  }
+
+  /**
+   * Makes this task the owner of the subtask under the given ID, instead of
+   * the next free one, and orders it after all subtasks of the task. Used to
+   * restore a plan whose subtasks keep the IDs they were saved with; unlike
+   * register, the dependencies of the subtask must already be part of the
+   * task and listeners are not told.
+   *
+   * @throws IllegalArgumentException if the ID is negative or in use
+   */
+  void adopt(SubTask task, int id) {
+    ensureLoaded();
+    version++;
+    if (id < 0) {
+      throw new IllegalArgumentException("ID " + id + " is negative");
+    }
+    if (id >= subTaskIdLimit) {
+      //the IDs skipped over are free
+      ensureIdCapacity(id + 1);
+      for (int skipped = id - 1; skipped >= subTaskIdLimit; skipped--) {
+        freeId(skipped);
+      }
+      subTaskIdLimit = id + 1;
+    } else {
+      //recently freed IDs are at the end, where a restored plan looks first
+      int i = freeIdCount - 1;
+      while (i >= 0 && freeIds[i] != id) {
+        i--;
+      }
+      if (i < 0) {
+        throw new IllegalArgumentException("ID " + id + " is in use");
+      }
+      freeIds[i] = freeIds[--freeIdCount];
+    }
+    place(task, id);
+  }
+
+  /**
+   * Adopts all the given subtasks at once, in order, rebuilding the free IDs
+   * in one pass at the end rather than after every subtask.
+   *
+   * @throws IllegalArgumentException if an ID is negative or in use
+   */
+  void adoptAll(SubTask[] tasks, int[] ids) {
+    ensureLoaded();
+    version++;
+    int limit = subTaskIdLimit;
+    for (int id : ids) {
+      limit = Math.max(limit, id + 1);
+    }
+    ensureIdCapacity(limit);
+    subTaskIdLimit = limit;
+    for (int i = 0; i < tasks.length; i++) {
+      if (ids[i] < 0 || subTasksById[ids[i]] != null) {
+        throw new IllegalArgumentException("ID " + ids[i] + " is in use");
+      }
+      place(tasks[i], ids[i]);
+    }
+    freeIdCount = 0;
+    for (int id = limit - 1; id >= 0; id--) {
+      if (subTasksById[id] == null) {
+        freeId(id);
+      }
+    }
+  }
+
+  private void place(SubTask task, int id) {
+    task.setOwner(this);
+    subTasksByName.putIfAbsent(task.getTaskName(), task);
+    subTasksById[id] = task;
+    task.setId(id);
+    task.setTopologicalOrder(nextTopologicalOrder++);
+  }
+
+  private void ensureIdCapacity(int capacity) {
+    if (capacity > subTasksById.length) {
+      subTasksById = Arrays.copyOf(subTasksById,
+          Math.max(capacity, subTasksById.length * 2));
+    }
+  }
+
+  private void freeId(int id) {
+    if (freeIdCount == freeIds.length) {
+      freeIds = Arrays.copyOf(freeIds, freeIdCount * 2);
+    }
+    freeIds[freeIdCount++] = id;
+  }
+
+  /**
+   * Tells the listener, if any, that a subtask of this task has changed.
+   */
+  void subTaskChanged(SubTask task) {
+    version++;
+    if (listener != null) {
+      listener.subTaskChanged(this, task);
+    }
+  }
+
+  void dependencyAdded(SubTask dependant, SubTask dependency) {
+    version++;
+    if (listener != null) {
+      listener.dependencyAdded(this, dependant, dependency);
+    }
+  }
+
+  void dependencyRemoved(SubTask dependant, SubTask dependency) {
+    version++;
+    if (listener != null) {
+      listener.dependencyRemoved(this, dependant, dependency);
+    }
+  }
+
+  private void claim(SubTask task) {
+    task.setOwner(this);
+    task.linkToDependencies();
+    subTasksByName.putIfAbsent(task.getTaskName(), task);
+
+    //IDs of removed subtasks are reused first, to keep IDs dense
+    int id;
+    if (freeIdCount > 0) {
+      id = freeIds[--freeIdCount];
+    } else {
+      id = subTaskIdLimit++;
+      if (id == subTasksById.length) {
+        subTasksById = Arrays.copyOf(subTasksById, id * 2);
+      }
+    }
+    subTasksById[id] = task;
+    task.setId(id);
+  }
+
+  private void unclaim(SubTask task) {
+    task.setOwner(null);
+    task.unlinkFromDependencies();
+    subTasksByName.remove(task.getTaskName(), task);
+
+    int id = task.getId();
+    subTasksById[id] = null;
+    freeId(id);
+    task.setId(NO_ID);
+  }
+
+  /**
+   * Returns whether making dependency a dependency of dependant would create
+   * a cycle, that is, whether dependency already depends on dependant.
+   *
+   * Every subtask of this task has a topological order, lower than the order
+   * of any subtask depending on it. If dependency is ordered before
+   * dependant the answer is immediately no; otherwise only the subtasks
+   * ordered between the two have to be searched.
+   *
+   * @param dependant the subtask that would get the new dependency
+   * @param dependency the subtask that would become a dependency
+   * @return true if adding the dependency would create a cycle
+   */
+  public boolean wouldCreateCycle(SubTask dependant, SubTask dependency) {
+    if (dependant == dependency) {
+      return true;
+    }
+    if (dependant.getOwner() != this || dependency.getOwner() != this) {
+      //subtasks outside of this task have no order, search the dependencies
+      return dependsOn(dependency, dependant);
+    }
+    if (dependency.getTopologicalOrder() < dependant.getTopologicalOrder()) {
+      return false;
+    }
+    List<SubTask> reached = collectForward(dependant,
+        dependency.getTopologicalOrder(), dependency);
+    return reached.get(reached.size() - 1) == dependency;
+  }
+
+  /**
+   * Returns the subtasks reachable from the given subtask through dependsOnMe
+   * whose topological order is at most upperBound, stopping early if target
+   * is reached.
+   */
+  private List<SubTask> collectForward(SubTask from, int upperBound,
+                                       SubTask target) {
+    BitSet visited = new BitSet(subTaskIdLimit);
+    List<SubTask> reached = new ArrayList<>();
+    Deque<SubTask> toVisit = new ArrayDeque<>();
+    visited.set(from.getId());
+    toVisit.push(from);
+    while (!toVisit.isEmpty()) {
+      SubTask t = toVisit.pop();
+      reached.add(t);
+      if (t == target) {
+        return reached;
+      }
+      for (SubTask next : t.getDependsOnMe()) {
+        if (next.getOwner() == this && next.getTopologicalOrder() <= upperBound
+            && !visited.get(next.getId())) {
+          visited.set(next.getId());
+          toVisit.push(next);
+        }
+      }
+    }
+    return reached;
+  }
+
+  /**
+   * Returns the subtasks reachable from the given subtask through its
+   * dependencies whose topological order is at least lowerBound.
+   */
+  private List<SubTask> collectBackward(SubTask from, int lowerBound) {
+    BitSet visited = new BitSet(subTaskIdLimit);
+    List<SubTask> reached = new ArrayList<>();
+    Deque<SubTask> toVisit = new ArrayDeque<>();
+    visited.set(from.getId());
+    toVisit.push(from);
+    while (!toVisit.isEmpty()) {
+      SubTask t = toVisit.pop();
+      reached.add(t);
+      for (SubTask next : t.getDependencies()) {
+        if (next.getTopologicalOrder() >= lowerBound
+            && !visited.get(next.getId())) {
+          visited.set(next.getId());
+          toVisit.push(next);
+        }
+      }
+    }
+    return reached;
+  }
+
+  private static boolean dependsOn(SubTask from, SubTask target) {
+    Set<SubTask> visited = new HashSet<>();
+    Deque<SubTask> toVisit = new ArrayDeque<>();
+    toVisit.push(from);
+    while (!toVisit.isEmpty()) {
+      SubTask t = toVisit.pop();
+      if (t == target) {
+        return true;
+      }
+      if (visited.add(t)) {
+        t.getDependencies().forEach(toVisit::push);
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Restores the topological order after dependency has been made a
+   * dependency of dependant (Pearce and Kelly's algorithm). Only the subtasks
+   * ordered between the two are reordered.
+   */
+  void restoreOrder(SubTask dependant, SubTask dependency) {
+    int lowerBound = dependant.getTopologicalOrder();
+    int upperBound = dependency.getTopologicalOrder();
+    if (upperBound < lowerBound) {
+      return;
+    }
+    List<SubTask> forward = collectForward(dependant, upperBound, null);
+    List<SubTask> backward = collectBackward(dependency, lowerBound);
+    Comparator<SubTask> byOrder = Comparator.comparingInt(SubTask::getTopologicalOrder);
+    forward.sort(byOrder);
+    backward.sort(byOrder);
+
+    //the freed orders are handed out again, dependencies first
+    int[] orders = new int[forward.size() + backward.size()];
+    int i = 0;
+    for (SubTask t : backward) {
+      orders[i++] = t.getTopologicalOrder();
+    }
+    for (SubTask t : forward) {
+      orders[i++] = t.getTopologicalOrder();
+    }
+    Arrays.sort(orders);
+    i = 0;
+    for (SubTask t : backward) {
+      t.setTopologicalOrder(orders[i++]);
+    }
+    for (SubTask t : forward) {
+      t.setTopologicalOrder(orders[i++]);
+    }
+  }
+
+  /**
+   * Removes the subtask from the name index if it is no longer part of this
+   * task, that is, if it is not a top level subtask and no subtask of this
+   * task depends on it. Its own dependencies are released in turn.
+   */
+  void releaseIfUnreachable(SubTask task) {
+    Deque<SubTask> toVisit = new ArrayDeque<>();
+    toVisit.push(task);
+    while (!toVisit.isEmpty()) {
+      SubTask t = toVisit.pop();
+      if (t.getOwner() != this || subTasks.contains(t) || hasParentInTask(t)) {
+        continue;
+      }
+      unclaim(t);
+      t.getDependencies().forEach(toVisit::push);
+    }
+  }
+
+  private boolean hasParentInTask(SubTask task) {
+    for (SubTask parent : task.getDependsOnMe()) {
+      if (parent.getOwner() == this) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Updates the name index after one of the subtasks has been renamed.
+   */
+  void renameSubTask(SubTask task, String oldName) {
+    subTasksByName.remove(oldName, task);
+    subTasksByName.putIfAbsent(task.getTaskName(), task);
+  }
 
   public Time getStartTime() {
     return startTime;
@@ -49,6 +722,9 @@ public class OverallTask extends Task {
 
   public void setStartTime(Time startTime) {
     this.startTime = startTime;
+    if (listener != null) {
+      listener.planChanged(this);
+    }
   }
 
   @Override
@@ -123,55 +799,158 @@ public class OverallTask extends Task {
 //    return false;
 //  }
 
-  public TaskGraph generateGraph() {
-    TaskGraph graph = new TaskGraph();
+  /**
+   * Computes the critical path analysis of the task directly on its
+   * subtasks' dependencies, without building the activity-on-arrow graph.
+   * The schedule is reused from the application's ScheduleCache if the task
+   * has not changed since it was last computed.
+   *
+   * @return the earliest and latest times of every subtask
+   */
+  public Schedule schedule() {
+    return ScheduleCache.getDefault().getSchedule(this);
+  }
 
-    TaskGraphNode startNode = graph.getStartNode();
+  /**
+   * Schedules the subtasks so that no more hands are needed at any time
+   * than the task has, see ResourceScheduler.
+   *
+   * @return the start time of every subtask
+   * @throws IllegalArgumentException if a subtask needs more hands than the
+   * task has
+   */
+  public ResourceSchedule scheduleWithHands() {
+    return ResourceScheduler.schedule(this);
+  }
 
-    subTasks.stream()
-        .filter(i -> i.getDependencies().isEmpty())
-        .forEach(startNode::addOutgoingArc);
+  /**
+   * Creates an optimiser that searches, in the background, for schedules
+   * that finish earlier than the one of scheduleWithHands.
+   *
+   * @throws IllegalArgumentException if a subtask needs more hands than the
+   * task has
+   */
+  public ScheduleOptimiser optimiser() {
+    return new ScheduleOptimiser(this);
+  }
 
-    startNode.getOutgoingArcs().forEach(i -> recurseForward(graph, i));
+  /**
+   * Compiles the dependencies of the task once for evaluating batches of
+   * duration overrides against them, see WhatIfAnalysis.
+   *
+   * @return an analysis of the task as it is now
+   */
+  public WhatIfAnalysis whatIf() {
+    return new WhatIfAnalysis(this);
+  }
 
-    return graph;
+  /**
+   * Returns the activity-on-arrow graph of the task. The graph is only
+   * generated the first time a view asks for it, and is kept until the
+   * structure of the task changes.
+   *
+   * @return the activity-on-arrow graph of the task
+   */
+  public TaskGraph getTaskGraph() {
+    if (taskGraph == null) {
+      taskGraph = generateGraph();
+    }
+    return taskGraph;
   }
 
-  private void recurseForward(TaskGraph graph, TaskGraphArc currentArc) {
-    Set<SubTask> nextTasks = subTasks.stream()
-        .filter(i -> i.getDependencies().contains((SubTask) currentArc.getTask
-            ()))
-        .collect(Collectors.toSet());
+  /**
+   * Discards the cached activity-on-arrow graph, so that it is generated
+   * again the next time it is needed. To be called whenever the dependencies
+   * of any subtask of this task change.
+   */
+  public void invalidateTaskGraph() {
+    taskGraph = null;
+  }
 
-    if (nextTasks.isEmpty()) {
-      currentArc.setChild(graph.getEndNode());
-      return;
+  /**
+   * Generates the activity-on-arrow graph of the task. Every subtask is an
+   * arc, and the successors of a subtask are found through its dependsOnMe
+   * index, so generation is O(V + E) in the number of subtasks and
+   * dependencies.
+   *
+   * @return the activity-on-arrow graph of the task
+   */
+  public TaskGraph generateGraph() {
+    ensureLoaded();
+    TaskGraph graph = new TaskGraph(this);
+
+    TaskGraphNode startNode = graph.getStartNode();
+    //the arc of every subtask that is already in the graph, by ID
+    TaskGraphArc[] arcs = new TaskGraphArc[subTaskIdLimit];
+    Deque<TaskGraphArc> toExpand = new ArrayDeque<>();
+
+    for (SubTask t : getReachableSubTasks()) {
+      if (t.getDependencies().isEmpty()) {
+        TaskGraphArc arc = startNode.addOutgoingArc(t);
+        arcs[t.getId()] = arc;
+        toExpand.push(arc);
+      }
+    }
+
+    while (!toExpand.isEmpty()) {
+      expandForward(graph, toExpand.pop(), arcs, toExpand);
     }
 
-    TaskGraphNode newNode = new TaskGraphNode();
-    currentArc.setChild(newNode);
+    return graph;
+  }
+
+  private void expandForward(TaskGraph graph, TaskGraphArc currentArc,
+                             TaskGraphArc[] arcs,
+                             Deque<TaskGraphArc> toExpand) {
+    List<SubTask> nextTasks = ((SubTask) currentArc.getTask()).getDependsOnMe();
+    TaskGraphNode newNode = null;
 
-    nextTasks.forEach(i -> {
-      TaskGraphArc existingArc = graph.findArc(i);
+    for (SubTask i : nextTasks) {
+      //dependants outside of this task are not part of its graph
+      if (i.getOwner() != this) {
+        continue;
+      }
+      if (newNode == null) {
+        newNode = graph.newNode();
+        currentArc.setChild(newNode);
+      }
+      TaskGraphArc existingArc = arcs[i.getId()];
       if (existingArc != null) {
-        if (existingArc.getParent().getOutgoingArcs().size() > 1) {
-          TaskGraphNode intermediateNode = new TaskGraphNode();
-          intermediateNode.addOutgoingArc(existingArc.getTask());
-          existingArc.getParent().getOutgoingArcs().remove(existingArc);
-          TaskGraphArc.newDummy(existingArc.getParent(), intermediateNode);
-          TaskGraphArc.newDummy(newNode, intermediateNode);
+        TaskGraphNode existingParent = existingArc.getParent();
+        if (existingParent.getOutgoingArcs().size() > 1) {
+          //the existing start event is shared, so the task gets its own
+          //start event, reached from the shared one through a dummy
+          TaskGraphNode intermediateNode = graph.newNode();
+          existingParent.getOutgoingArcs().remove(existingArc);
+          intermediateNode.getOutgoingArcs().add(existingArc);
           existingArc.setParent(intermediateNode);
-
+          TaskGraphArc.newDummy(existingParent, intermediateNode);
         }
 
-
         TaskGraphArc.newDummy(newNode, existingArc.getParent());
       } else {
-        newNode.addOutgoingArc(i);
-        recurseForward(graph, new TaskGraphArc(i, newNode, null));
+        TaskGraphArc arc = newNode.addOutgoingArc(i);
+        arcs[i.getId()] = arc;
+        toExpand.push(arc);
       }
-    });
-  }
+    }
 
+    if (newNode == null) {
+      currentArc.setChild(graph.getEndNode());
+    }
+  }
 
+  /**
+   * @return every subtask reachable from this task through dependencies,
+   * which are exactly the subtasks holding an ID of this task
+   */
+  private List<SubTask> getReachableSubTasks() {
+    List<SubTask> reachable = new ArrayList<>(getSubTaskCount());
+    for (int id = 0; id < subTaskIdLimit; id++) {
+      if (subTasksById[id] != null) {
+        reachable.add(subTasksById[id]);
+      }
+    }
+    return reachable;
+  }
 }
@@ -0,0 +1,275 @@
+package application;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Level-synchronous parallel version of the ActivityOnNodeScheduler for very
+ * large plans. The forward pass visits the levels of the PlanTopology in
+ * order and the backward pass in reverse order; within a level every subtask
+ * only reads the times of other levels, so the level is split into chunks
+ * that are computed on a ForkJoinPool.
+ *
+ * Plans with fewer than PARALLEL_THRESHOLD subtasks, and levels with fewer
+ * than GRAIN subtasks, are computed sequentially, as there the cost of the
+ * fork outweighs the work.
+ *
+ * The threshold has not been measured on a machine with several cores, and
+ * on one core the level passes are slower than the sequential passes at any
+ * size, so nothing schedules through this class by default. main prints the
+ * plan size from which the level passes pay off on the machine it runs on,
+ * which PARALLEL_THRESHOLD is to be set from before ScheduleCache uses it.
+ */
+public final class ParallelScheduler {
+
+  public static final int PARALLEL_THRESHOLD = 50_000;
+  private static final int GRAIN = 2048;
+
+  private ParallelScheduler() {
+  }
+
+  /**
+   * Computes the schedule of the given task on the common pool.
+   *
+   * @param task the task to schedule
+   * @return the earliest and latest times of every subtask of the task
+   * @throws IllegalStateException if the dependencies contain a cycle
+   */
+  public static Schedule schedule(OverallTask task) {
+    PlanTopology topology = PlanTopology.of(task);
+    return schedule(topology, topology.getDurations(),
+        ForkJoinPool.commonPool());
+  }
+
+  /**
+   * Computes the schedule of a topology with the given durations, using the
+   * given pool if the topology is large enough.
+   *
+   * @param topology the dependency structure to schedule
+   * @param duration the duration of every subtask in minutes, by index
+   * @param pool the pool to run the levels on
+   * @return the earliest and latest times of every subtask
+   */
+  public static Schedule schedule(PlanTopology topology, int[] duration,
+                                  ForkJoinPool pool) {
+    if (topology.size() < PARALLEL_THRESHOLD || pool.getParallelism() < 2) {
+      return ActivityOnNodeScheduler.schedule(topology, duration);
+    }
+    return scheduleLevels(topology, duration, pool);
+  }
+
+  /**
+   * Computes the schedule level by level on the pool, whatever the size of
+   * the topology.
+   */
+  static Schedule scheduleLevels(PlanTopology topology, int[] duration,
+                                 ForkJoinPool pool) {
+    int n = topology.size();
+    int[] earliestStart = new int[n];
+    int[] latestStart = new int[n];
+    int[] freeFloat = new int[n];
+    int levelCount = topology.getLevelCount();
+
+    //forward pass: the first level only holds subtasks without dependencies
+    for (int l = 1; l < levelCount; l++) {
+      runLevel(new LevelPass(topology, duration, earliestStart, null, null,
+          0, topology.getLevelStart(l), topology.getLevelEnd(l)), pool);
+    }
+    int finish = 0;
+    for (int t = 0; t < n; t++) {
+      finish = Math.max(finish, earliestStart[t] + duration[t]);
+    }
+
+    //backward pass
+    for (int l = levelCount - 1; l >= 0; l--) {
+      runLevel(new LevelPass(topology, duration, earliestStart, latestStart,
+          freeFloat, finish, topology.getLevelStart(l),
+          topology.getLevelEnd(l)), pool);
+    }
+
+    return new Schedule(topology, duration, earliestStart, latestStart,
+        freeFloat, finish);
+  }
+
+  private static void runLevel(LevelPass pass, ForkJoinPool pool) {
+    if (pass.end - pass.start <= GRAIN) {
+      pass.compute();
+    } else {
+      pool.invoke(pass);
+    }
+  }
+
+  /**
+   * Computes the times of the entries [start, end) of one level, splitting
+   * the range in halves until it is at most GRAIN entries long. The pass is
+   * a forward pass if no latest start array is given.
+   */
+  private static final class LevelPass extends RecursiveAction {
+
+    private static final long serialVersionUID = 1L;
+
+    private final PlanTopology topology;
+    private final int[] duration;
+    private final int[] earliestStart;
+    private final int[] latestStart;
+    private final int[] freeFloat;
+    private final int finish;
+    private final int start;
+    private final int end;
+
+    LevelPass(PlanTopology topology, int[] duration, int[] earliestStart,
+              int[] latestStart, int[] freeFloat, int finish, int start,
+              int end) {
+      this.topology      = topology;
+      this.duration      = duration;
+      this.earliestStart = earliestStart;
+      this.latestStart   = latestStart;
+      this.freeFloat     = freeFloat;
+      this.finish        = finish;
+      this.start         = start;
+      this.end           = end;
+    }
+
+    @Override
+    protected void compute() {
+      if (end - start > GRAIN) {
+        int middle = (start + end) >>> 1;
+        invokeAll(
+            new LevelPass(topology, duration, earliestStart, latestStart,
+                freeFloat, finish, start, middle),
+            new LevelPass(topology, duration, earliestStart, latestStart,
+                freeFloat, finish, middle, end));
+        return;
+      }
+      if (latestStart == null) {
+        forward();
+      } else {
+        backward();
+      }
+    }
+
+    //a subtask starts once all its dependencies are finished
+    private void forward() {
+      for (int e = start; e < end; e++) {
+        int t = topology.getLevelTask(e);
+        int time = 0;
+        for (int a = topology.getFirstPred(t); a < topology.getEndPred(t); a++) {
+          int pred = topology.getPred(a);
+          time = Math.max(time, earliestStart[pred] + duration[pred]);
+        }
+        earliestStart[t] = time;
+      }
+    }
+
+    //a subtask finishes before any subtask depending on it starts
+    private void backward() {
+      for (int e = start; e < end; e++) {
+        int t = topology.getLevelTask(e);
+        int latestFinish = finish;
+        int nextStart = finish;
+        for (int a = topology.getFirstSucc(t); a < topology.getEndSucc(t); a++) {
+          int succ = topology.getSucc(a);
+          latestFinish = Math.min(latestFinish, latestStart[succ]);
+          nextStart = Math.min(nextStart, earliestStart[succ]);
+        }
+        latestStart[t] = latestFinish - duration[t];
+        freeFloat[t] = nextStart - earliestStart[t] - duration[t];
+      }
+    }
+  }
+
+  //Benchmark of the sequential and parallel passes on generated plans of
+  //growing size, to find the size from which the parallel passes pay off
+  public static void main(String[] args) {
+    int width = args.length > 0 ? Integer.parseInt(args[0]) : 5_000;
+    int workers = args.length > 1 ? Integer.parseInt(args[1])
+        : Math.max(2, Runtime.getRuntime().availableProcessors());
+    ForkJoinPool pool = new ForkJoinPool(workers);
+    System.out.println(Runtime.getRuntime().availableProcessors()
+        + " processors, " + workers + " workers");
+
+    int crossover = -1;
+    for (int size : new int[] {10_000, 25_000, 50_000, 100_000, 200_000}) {
+      PlanTopology topology = PlanTopology.of(layeredPlan(size,
+          Math.min(width, size / 10)));
+      int[] duration = topology.getDurations();
+      Schedule sequential = ActivityOnNodeScheduler.schedule(topology, duration);
+      Schedule parallel = scheduleLevels(topology, duration, pool);
+      for (int t = 0; t < topology.size(); t++) {
+        if (sequential.getEarliestStart(t) != parallel.getEarliestStart(t)
+            || sequential.getLatestStart(t) != parallel.getLatestStart(t)
+            || sequential.getFreeFloat(t) != parallel.getFreeFloat(t)) {
+          throw new AssertionError("Schedules differ at " + topology.getTask(t));
+        }
+      }
+
+      //warm up both passes, then take the median of the timed rounds
+      int rounds = 15;
+      long[] sequentialTimes = new long[rounds];
+      long[] parallelTimes = new long[rounds];
+      for (int round = -10; round < rounds; round++) {
+        long sequentialStart = System.nanoTime();
+        ActivityOnNodeScheduler.schedule(topology, duration);
+        long parallelStart = System.nanoTime();
+        scheduleLevels(topology, duration, pool);
+        long parallelEnd = System.nanoTime();
+        if (round >= 0) {
+          sequentialTimes[round] = parallelStart - sequentialStart;
+          parallelTimes[round] = parallelEnd - parallelStart;
+        }
+      }
+      Arrays.sort(sequentialTimes);
+      Arrays.sort(parallelTimes);
+      long sequentialTime = sequentialTimes[rounds / 2];
+      long parallelTime = parallelTimes[rounds / 2];
+      System.out.printf("%d subtasks in %d levels: sequential %.2f ms,"
+              + " parallel %.2f ms, speedup %.2fx%n", topology.size(),
+          topology.getLevelCount(), sequentialTime / 1e6, parallelTime / 1e6,
+          (double) sequentialTime / parallelTime);
+      if (parallelTime < sequentialTime) {
+        if (crossover < 0) {
+          crossover = topology.size();
+        }
+      } else {
+        crossover = -1;
+      }
+    }
+    pool.shutdown();
+    System.out.println(crossover < 0
+        ? "The level passes do not pay off at any size measured"
+        : "The level passes pay off from " + crossover + " subtasks");
+  }
+
+  //a layered plan of size subtasks: every subtask depends on a few of the
+  //previous layer, and those no other depends on are top level, so that
+  //all of them are part of the plan
+  private static OverallTask layeredPlan(int size, int width) {
+    Random random = new Random(42);
+    OverallTask task = new OverallTask("Benchmark", new Duration(0, 0),
+        new Time(0, 0));
+    SubTask[] subTasks = new SubTask[size];
+    boolean[] dependedOn = new boolean[size];
+    for (int i = 0; i < size; i++) {
+      subTasks[i] = new SubTask("Task " + i,
+          new Duration(0, 1 + random.nextInt(59)));
+      if (i >= width) {
+        int layerStart = (i / width - 1) * width;
+        for (int d = 0; d < 3; d++) {
+          int dep = layerStart + random.nextInt(width);
+          if (!subTasks[i].getDependencies().contains(subTasks[dep])) {
+            subTasks[i].addDependency(subTasks[dep]);
+            dependedOn[dep] = true;
+          }
+        }
+      }
+    }
+    for (int i = 0; i < size; i++) {
+      if (!dependedOn[i]) {
+        task.addSubTask(subTasks[i]);
+      }
+    }
+    return task;
+  }
+}
@@ -0,0 +1,164 @@
+package application;
+
+import java.lang.ref.SoftReference;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+/**
+ * Limits how many plans read from a workspace file keep their subtasks in
+ * memory. A plan of WorkspaceFile.readSummaries reads its subtasks the first
+ * time they are needed; once more than the capacity of the cache are in
+ * memory, the least recently loaded ones are unloaded again, and read back
+ * when next needed.
+ *
+ * Only plans that are saved as they are, see OverallTask.isSaved, are
+ * unloaded: a plan changed since it was read is kept until a snapshot of
+ * the WorkspaceJournal saves it. So are plans pinned by a view that holds on
+ * to their subtasks, such as an open tab.
+ *
+ * When memory runs low, every plan that can be is unloaded. Low memory is
+ * detected with a softly referenced sentinel object, which the garbage
+ * collector clears before running out of memory.
+ *
+ * Plans may be loaded by any thread, but are only unloaded by a task run
+ * on the thread that changes them, through the executor given to the
+ * constructor, so a plan is never unloaded in the middle of a change.
+ */
+public final class PlanCache {
+
+  private final Executor modelThread;
+  private int capacity;
+  //plans in memory, least recently loaded or pinned first, guarded by this
+  private final Map<OverallTask, Boolean> loaded =
+      new LinkedHashMap<>(16, 0.75f, true);
+  private final Map<OverallTask, Integer> pins = new IdentityHashMap<>();
+  private SoftReference<Object> sentinel = new SoftReference<>(new Object());
+  private boolean trimScheduled;
+
+  /**
+   * @param capacity the number of unpinned plans to keep in memory
+   * @param modelThread runs tasks on the thread that changes the plans, such
+   * as SwingUtilities::invokeLater
+   */
+  public PlanCache(int capacity, Executor modelThread) {
+    if (capacity < 0) {
+      throw new IllegalArgumentException("Capacity cannot be negative");
+    }
+    this.capacity    = capacity;
+    this.modelThread = modelThread;
+  }
+
+  /**
+   * Starts managing the plan. Its subtasks are only unloaded if it was read
+   * with WorkspaceFile.readSummaries or has been saved since.
+   */
+  public void add(OverallTask plan) {
+    plan.setCache(this);
+    if (plan.isLoaded()) {
+      loaded(plan);
+    }
+  }
+
+  /**
+   * Stops managing the plan, leaving its subtasks as they are.
+   */
+  public synchronized void remove(OverallTask plan) {
+    plan.setCache(null);
+    loaded.remove(plan);
+    pins.remove(plan);
+  }
+
+  /**
+   * Keeps the subtasks of the plan in memory until unpin is called as many
+   * times as pin, loading them if they are not.
+   */
+  public void pin(OverallTask plan) {
+    synchronized (this) {
+      pins.merge(plan, 1, Integer::sum);
+    }
+    plan.getAllSubTasks();
+    synchronized (this) {
+      loaded.put(plan, Boolean.TRUE);
+    }
+  }
+
+  public void unpin(OverallTask plan) {
+    synchronized (this) {
+      pins.computeIfPresent(plan, (p, count) -> count > 1 ? count - 1 : null);
+    }
+    scheduleTrim();
+  }
+
+  public synchronized int getCapacity() {
+    return capacity;
+  }
+
+  public void setCapacity(int capacity) {
+    if (capacity < 0) {
+      throw new IllegalArgumentException("Capacity cannot be negative");
+    }
+    synchronized (this) {
+      this.capacity = capacity;
+    }
+    scheduleTrim();
+  }
+
+  /**
+   * @return the number of plans with their subtasks in memory
+   */
+  public synchronized int getLoadedCount() {
+    return loaded.size();
+  }
+
+  /**
+   * Called by a plan once it has loaded its subtasks.
+   */
+  void loaded(OverallTask plan) {
+    synchronized (this) {
+      loaded.put(plan, Boolean.TRUE);
+    }
+    scheduleTrim();
+  }
+
+  private void scheduleTrim() {
+    synchronized (this) {
+      boolean lowMemory = sentinel.get() == null;
+      if (trimScheduled || !lowMemory
+          && loaded.size() - pins.size() <= capacity) {
+        return;
+      }
+      trimScheduled = true;
+    }
+    modelThread.execute(this::trim);
+  }
+
+  /**
+   * Unloads the least recently used plans that can be unloaded, down to the
+   * capacity, or all of them if memory is low.
+   */
+  private synchronized void trim() {
+    trimScheduled = false;
+    boolean lowMemory = sentinel.get() == null;
+    if (lowMemory) {
+      sentinel = new SoftReference<>(new Object());
+    }
+    int keep = lowMemory ? 0 : capacity;
+    int unpinned = loaded.size() - pins.size();
+    Iterator<OverallTask> lru = loaded.keySet().iterator();
+    while (unpinned > keep && lru.hasNext()) {
+      OverallTask plan = lru.next();
+      if (!plan.isLoaded()) {
+        lru.remove();
+        unpinned--;
+      } else if (!pins.containsKey(plan) && plan.isSaved()) {
+        plan.unload();
+        ScheduleCache.getDefault().remove(plan);
+        lru.remove();
+        unpinned--;
+      }
+    }
+  }
+}
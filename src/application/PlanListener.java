@@ -0,0 +1,50 @@
+package application;
+
+/**
+ * Told about every change to an OverallTask and the subtasks it owns, see
+ * OverallTask.setPlanListener. Subtasks are identified by their IDs, which
+ * are still valid when a method is called: a subtask that is about to be
+ * released from the task is reported before it is.
+ */
+public interface PlanListener {
+
+  /**
+   * The name, description, duration, start time or hands of the task have
+   * changed.
+   */
+  void planChanged(OverallTask plan);
+
+  /**
+   * The subtask has become part of the task. Its dependencies already are.
+   */
+  void subTaskAdded(OverallTask plan, SubTask subTask);
+
+  /**
+   * The name, duration, resource demand or estimate of the subtask have
+   * changed.
+   */
+  void subTaskChanged(OverallTask plan, SubTask subTask);
+
+  /**
+   * The subtask has been made a top level subtask of the task.
+   */
+  void topLevelAdded(OverallTask plan, SubTask subTask);
+
+  /**
+   * The subtask is no longer a top level subtask of the task, see
+   * OverallTask.removeSubTask.
+   */
+  void topLevelRemoved(OverallTask plan, SubTask subTask);
+
+  /**
+   * The subtask is being removed from the task, see
+   * OverallTask.detachSubTask.
+   */
+  void subTaskDetached(OverallTask plan, SubTask subTask);
+
+  void dependencyAdded(OverallTask plan, SubTask dependant,
+                       SubTask dependency);
+
+  void dependencyRemoved(OverallTask plan, SubTask dependant,
+                         SubTask dependency);
+}
@@ -0,0 +1,126 @@
+package application;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+
+/**
+ * The structure, durations and names of an OverallTask as they were at one
+ * version, to schedule the task on another thread than the one editing it.
+ * The snapshot is taken on the editing thread; afterwards it does not read
+ * the task, so it can be scheduled on any thread while the task is edited.
+ */
+public final class PlanSnapshot {
+
+  private final OverallTask task;
+  private final int version;
+  private final PlanTopology topology;
+  private final int[] duration;
+  //what an export writes of the task and its subtasks
+  private final String taskName;
+  private final String description;
+  private final int startTime;
+  private final String[] subTaskNames;
+
+  private PlanSnapshot(OverallTask task) {
+    this.task         = task;
+    this.version      = task.getVersion();
+    this.topology     = PlanTopology.of(task);
+    this.duration     = topology.getDurations();
+    this.taskName     = task.getTaskName();
+    this.description  = task.getDescription();
+    this.startTime    = Time.toMinutes(task.getStartTime());
+    this.subTaskNames = new String[topology.size()];
+    for (int t = 0; t < subTaskNames.length; t++) {
+      subTaskNames[t] = topology.getTask(t).getTaskName();
+    }
+  }
+
+  /**
+   * Takes a snapshot of the task on the calling thread, which has to be the
+   * thread editing the task. A task managed by a PlanCache is pinned while
+   * the snapshot is taken.
+   *
+   * @param task the task to take the snapshot of
+   * @return the snapshot of the task
+   * @throws IllegalStateException if the dependencies contain a cycle
+   */
+  public static PlanSnapshot of(OverallTask task) {
+    PlanCache cache = task.getPlanCache();
+    if (cache == null) {
+      return new PlanSnapshot(task);
+    }
+    cache.pin(task);
+    try {
+      return new PlanSnapshot(task);
+    } finally {
+      cache.unpin(task);
+    }
+  }
+
+  /**
+   * Takes a snapshot of the task on the thread editing it and waits for it.
+   * Must not be called on that thread.
+   *
+   * @param task the task to take the snapshot of
+   * @param editor the executor running on the thread editing the task
+   * @return the snapshot of the task
+   * @throws IllegalStateException if the dependencies contain a cycle, or
+   * the calling thread is interrupted
+   */
+  public static PlanSnapshot of(OverallTask task, Executor editor) {
+    FutureTask<PlanSnapshot> snapshot = new FutureTask<>(() -> of(task));
+    editor.execute(snapshot);
+    try {
+      return snapshot.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while taking a snapshot of "
+          + task.getTaskName(), e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw new IllegalStateException(e.getCause());
+    }
+  }
+
+  public OverallTask getTask() {
+    return task;
+  }
+
+  String getTaskName() {
+    return taskName;
+  }
+
+  String getDescription() {
+    return description;
+  }
+
+  /**
+   * @return the start time of the task, in minutes from midnight
+   */
+  int getStartTime() {
+    return startTime;
+  }
+
+  /**
+   * @return the name of the subtask with the given index in the topology
+   */
+  String getSubTaskName(int index) {
+    return subTaskNames[index];
+  }
+
+  /**
+   * Computes the schedule of the task as it was when the snapshot was
+   * taken, and keeps it in the default ScheduleCache, where it is returned
+   * for as long as the task is not changed.
+   *
+   * @return the schedule of the snapshot
+   */
+  public Schedule schedule() {
+    Schedule schedule = ActivityOnNodeScheduler.schedule(topology, duration);
+    ScheduleCache.getDefault().put(task, version, schedule);
+    return schedule;
+  }
+}
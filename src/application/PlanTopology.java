@@ -0,0 +1,284 @@
+package application;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The dependency structure of an OverallTask as an activity-on-node network.
+ * Every SubTask reachable from the OverallTask is given a dense index, mapped
+ * from its ID through an int array, and the dependencies between them are
+ * stored in compressed sparse row form in both directions. A dependency D of a SubTask S is an arc D -> S, as D has
+ * to be completed before S can start.
+ *
+ * The topology does not hold durations, so one topology can be shared by
+ * any number of evaluations with different durations.
+ */
+public final class PlanTopology {
+
+  private final OverallTask owner;
+  private final SubTask[] tasks;
+  private final int[] indexById;
+  private final int[] predOffsets;
+  private final int[] preds;
+  private final int[] succOffsets;
+  private final int[] succs;
+  private final int[] order;
+  private final int[] position;
+  private final int[] levelOffsets;
+  private final int[] levels;
+
+  private PlanTopology(OverallTask owner, SubTask[] tasks, int[] indexById,
+                       int[] predOffsets, int[] preds, int[] succOffsets,
+                       int[] succs, int[] order, int[] position,
+                       int[] levelOffsets, int[] levels) {
+    this.owner       = owner;
+    this.tasks       = tasks;
+    this.indexById   = indexById;
+    this.predOffsets = predOffsets;
+    this.preds       = preds;
+    this.succOffsets = succOffsets;
+    this.succs       = succs;
+    this.order       = order;
+    this.position    = position;
+    this.levelOffsets = levelOffsets;
+    this.levels       = levels;
+  }
+
+  /**
+   * Builds the topology of all the SubTasks reachable from the given task.
+   *
+   * @param task the task whose subtasks are indexed
+   * @return the topology of the task
+   * @throws IllegalStateException if the dependencies contain a cycle
+   */
+  public static PlanTopology of(OverallTask task) {
+    //index every reachable subtask in ID order, so that the indices only
+    //depend on the plan and not on the iteration order of hashed sets
+    int[] indexById = new int[task.getSubTaskIdLimit()];
+    Arrays.fill(indexById, -1);
+    List<SubTask> tasks = new ArrayList<>(task.getSubTaskCount());
+    int arcCount = 0;
+    for (int id = 0; id < indexById.length; id++) {
+      SubTask t = task.getSubTask(id);
+      if (t != null) {
+        indexById[id] = tasks.size();
+        tasks.add(t);
+        arcCount += t.getDependencies().size();
+      }
+    }
+
+    //predecessors are the dependencies of each subtask
+    int n = tasks.size();
+    int[] predOffsets = new int[n + 1];
+    int[] preds = new int[arcCount];
+    int[] succCount = new int[n];
+    int arc = 0;
+    for (int i = 0; i < n; i++) {
+      predOffsets[i] = arc;
+      for (SubTask dep : tasks.get(i).getDependencies()) {
+        int pred = indexById[dep.getId()];
+        preds[arc++] = pred;
+        succCount[pred]++;
+      }
+    }
+    predOffsets[n] = arc;
+
+    //successors by transposing the predecessors
+    int[] succOffsets = new int[n + 1];
+    for (int i = 0; i < n; i++) {
+      succOffsets[i + 1] = succOffsets[i] + succCount[i];
+    }
+    int[] succs = new int[arcCount];
+    int[] fill = new int[n];
+    for (int i = 0; i < n; i++) {
+      for (int a = predOffsets[i]; a < predOffsets[i + 1]; a++) {
+        int pred = preds[a];
+        succs[succOffsets[pred] + fill[pred]++] = i;
+      }
+    }
+
+    //Kahn's algorithm, a subtask is ready once all its dependencies are
+    int[] degree = new int[n];
+    int[] order = new int[n];
+    int head = 0;
+    int tail = 0;
+    for (int i = 0; i < n; i++) {
+      degree[i] = predOffsets[i + 1] - predOffsets[i];
+      if (degree[i] == 0) {
+        order[tail++] = i;
+      }
+    }
+    while (head < tail) {
+      int t = order[head++];
+      for (int a = succOffsets[t]; a < succOffsets[t + 1]; a++) {
+        if (--degree[succs[a]] == 0) {
+          order[tail++] = succs[a];
+        }
+      }
+    }
+    if (tail != n) {
+      throw new IllegalStateException("Dependencies of " + task.getTaskName()
+          + " contain a cycle");
+    }
+    int[] position = new int[n];
+    for (int i = 0; i < n; i++) {
+      position[order[i]] = i;
+    }
+
+    //a subtask's level is one more than the highest level of its
+    //dependencies, so the subtasks of a level never depend on each other
+    int[] level = new int[n];
+    int levelCount = n == 0 ? 0 : 1;
+    for (int p = 0; p < n; p++) {
+      int t = order[p];
+      for (int a = predOffsets[t]; a < predOffsets[t + 1]; a++) {
+        level[t] = Math.max(level[t], level[preds[a]] + 1);
+      }
+      levelCount = Math.max(levelCount, level[t] + 1);
+    }
+    int[] levelOffsets = new int[levelCount + 1];
+    for (int t = 0; t < n; t++) {
+      levelOffsets[level[t] + 1]++;
+    }
+    for (int l = 0; l < levelCount; l++) {
+      levelOffsets[l + 1] += levelOffsets[l];
+    }
+    int[] levels = new int[n];
+    Arrays.fill(fill, 0);
+    for (int p = 0; p < n; p++) {
+      int t = order[p];
+      levels[levelOffsets[level[t]] + fill[level[t]]++] = t;
+    }
+
+    return new PlanTopology(task, tasks.toArray(new SubTask[n]), indexById,
+        predOffsets, preds, succOffsets, succs, order, position, levelOffsets,
+        levels);
+  }
+
+  /**
+   * @return the number of subtasks in the topology
+   */
+  public int size() {
+    return tasks.length;
+  }
+
+  public SubTask getTask(int index) {
+    return tasks[index];
+  }
+
+  /**
+   * @return the index of the subtask, or -1 if it is not part of the plan
+   */
+  public int indexOf(SubTask task) {
+    int id = task.getId();
+    if (task.getOwner() != owner || id >= indexById.length) {
+      return -1;
+    }
+    return indexById[id];
+  }
+
+  /**
+   * @return the index of the subtask with the given ID, or -1 if there is
+   * none in the plan
+   */
+  public int indexOfId(int id) {
+    return id >= 0 && id < indexById.length ? indexById[id] : -1;
+  }
+
+  /**
+   * @return the durations of all subtasks in minutes, by index
+   */
+  public int[] getDurations() {
+    int[] durations = new int[tasks.length];
+    for (int i = 0; i < tasks.length; i++) {
+      durations[i] = tasks[i].getDuration().getTotalMinutes();
+    }
+    return durations;
+  }
+
+  /**
+   * @return the number of dependencies between the subtasks
+   */
+  public int getArcCount() {
+    return preds.length;
+  }
+
+  /**
+   * @return the exclusive upper bound of the IDs the topology was built
+   * with
+   */
+  public int getIdLimit() {
+    return indexById.length;
+  }
+
+  public int getFirstPred(int index) {
+    return predOffsets[index];
+  }
+
+  public int getEndPred(int index) {
+    return predOffsets[index + 1];
+  }
+
+  public int getPred(int arc) {
+    return preds[arc];
+  }
+
+  public int getFirstSucc(int index) {
+    return succOffsets[index];
+  }
+
+  public int getEndSucc(int index) {
+    return succOffsets[index + 1];
+  }
+
+  public int getSucc(int arc) {
+    return succs[arc];
+  }
+
+  /**
+   * @return the index of the subtask at the given position of the
+   * topological order
+   */
+  public int getOrder(int position) {
+    return order[position];
+  }
+
+  /**
+   * @return the position of the subtask with the given index in the
+   * topological order
+   */
+  public int getPosition(int index) {
+    return position[index];
+  }
+
+  /**
+   * @return the number of levels of the topology. The subtasks of a level
+   * only depend on subtasks of earlier levels, so all the subtasks of one
+   * level can be scheduled independently of each other.
+   */
+  public int getLevelCount() {
+    return levelOffsets.length - 1;
+  }
+
+  /**
+   * @return the first entry of the given level, see {@link #getLevelTask}
+   */
+  public int getLevelStart(int level) {
+    return levelOffsets[level];
+  }
+
+  /**
+   * @return the end entry, exclusive, of the given level
+   */
+  public int getLevelEnd(int level) {
+    return levelOffsets[level + 1];
+  }
+
+  /**
+   * @return the index of the subtask at the given entry of the levels
+   */
+  public int getLevelTask(int entry) {
+    return levels[entry];
+  }
+}
@@ -0,0 +1,72 @@
+package application;
+
+/**
+ * The result of a ResourceScheduler run: the start time of every SubTask,
+ * in minutes from the start of the task, such that no more hands are in use
+ * at any time than the OverallTask has. Times are stored in primitive arrays
+ * indexed like the PlanTopology the schedule was computed on.
+ */
+public final class ResourceSchedule {
+
+  private final PlanTopology topology;
+  private final int[] duration;
+  private final int[] start;
+  private final int finish;
+  private final int hands;
+
+  ResourceSchedule(PlanTopology topology, int[] duration, int[] start,
+                   int finish, int hands) {
+    this.topology = topology;
+    this.duration = duration;
+    this.start    = start;
+    this.finish   = finish;
+    this.hands    = hands;
+  }
+
+  public PlanTopology getTopology() {
+    return topology;
+  }
+
+  public int size() {
+    return start.length;
+  }
+
+  /**
+   * @return the number of hands the schedule was computed for
+   */
+  public int getHands() {
+    return hands;
+  }
+
+  /**
+   * @return the time needed to complete the whole task, in minutes
+   */
+  public int getFinishTime() {
+    return finish;
+  }
+
+  public int getStart(int index) {
+    return start[index];
+  }
+
+  public int getFinish(int index) {
+    return start[index] + duration[index];
+  }
+
+  public int getStart(SubTask subTask) {
+    return getStart(indexOf(subTask));
+  }
+
+  public int getFinish(SubTask subTask) {
+    return getFinish(indexOf(subTask));
+  }
+
+  private int indexOf(SubTask subTask) {
+    int index = topology.indexOf(subTask);
+    if (index < 0) {
+      throw new IllegalArgumentException(subTask.getTaskName()
+          + " is not part of this schedule");
+    }
+    return index;
+  }
+}
@@ -0,0 +1,252 @@
+package application;
+
+/**
+ * Resource-constrained list scheduling of an OverallTask. The critical path
+ * analysis assumes any number of subtasks can be carried out at once; here
+ * the OverallTask has a number of hands and every SubTask needs some of them
+ * while it is carried out.
+ *
+ * The scheduler moves through time from one finishing subtask to the next.
+ * At every such moment it starts ready subtasks, all of whose dependencies
+ * are finished, in the order of a PriorityRule computed from the critical
+ * path analysis, skipping those that need more hands than are free. Ready
+ * subtasks and running subtasks are kept in binary heaps, so a plan with n
+ * subtasks and e dependencies is scheduled in O((n + e) log n) time when
+ * few subtasks have to be skipped.
+ */
+public final class ResourceScheduler {
+
+  /**
+   * The order in which ready subtasks are started, all taken from the
+   * unconstrained schedule. Ties are broken by subtask index.
+   */
+  public enum PriorityRule {
+    /** Least latest start first, that is, least float at the current time*/
+    MIN_LATEST_START,
+    /** Least total float first*/
+    MIN_TOTAL_FLOAT,
+    /** Least free float first*/
+    MIN_FREE_FLOAT;
+
+    int priority(Schedule schedule, int index) {
+      switch (this) {
+        case MIN_TOTAL_FLOAT:
+          return schedule.getTotalFloat(index);
+        case MIN_FREE_FLOAT:
+          return schedule.getFreeFloat(index);
+        default:
+          return schedule.getLatestStart(index);
+      }
+    }
+  }
+
+  private final PlanTopology topology;
+  private final int[] duration;
+  private final int[] demand;
+  private final int hands;
+  private final Schedule unconstrained;
+
+  //working storage, reused by every run
+  private final int[] waitingFor;
+  private final int[] start;
+  private final int[] skipped;
+  private final IntHeap ready;
+  private final IntHeap running;
+
+  /**
+   * Creates a scheduler for the current durations and resource demands of
+   * the task's subtasks. The scheduler can be run any number of times with
+   * different priorities, but not from several threads at once.
+   *
+   * @throws IllegalArgumentException if a subtask needs more hands than are
+   * available
+   */
+  ResourceScheduler(OverallTask task, int hands) {
+    this.topology = PlanTopology.of(task);
+    int n         = topology.size();
+    this.duration = topology.getDurations();
+    this.demand   = new int[n];
+    this.hands    = hands;
+    for (int t = 0; t < n; t++) {
+      demand[t] = topology.getTask(t).getResourceDemand();
+      if (demand[t] > hands) {
+        throw new IllegalArgumentException(topology.getTask(t).getTaskName()
+            + " needs " + demand[t] + " hands, but only " + hands
+            + " are available");
+      }
+    }
+    this.unconstrained = ActivityOnNodeScheduler.schedule(topology, duration);
+    this.waitingFor    = new int[n];
+    this.start         = new int[n];
+    this.skipped       = new int[n];
+    this.ready         = new IntHeap(n);
+    this.running       = new IntHeap(n);
+  }
+
+  /**
+   * Creates a scheduler for the same plan as the given one, with its own
+   * working storage, so that the two can be run from different threads
+   * without touching the task.
+   */
+  ResourceScheduler(ResourceScheduler other) {
+    this.topology      = other.topology;
+    int n              = topology.size();
+    this.duration      = other.duration;
+    this.demand        = other.demand;
+    this.hands         = other.hands;
+    this.unconstrained = other.unconstrained;
+    this.waitingFor    = new int[n];
+    this.start         = new int[n];
+    this.skipped       = new int[n];
+    this.ready         = new IntHeap(n);
+    this.running       = new IntHeap(n);
+  }
+
+  /**
+   * Schedules the task with its own number of hands, starting the subtasks
+   * with the least latest start first.
+   *
+   * @param task the task to schedule
+   * @return the start time of every subtask of the task
+   * @throws IllegalArgumentException if a subtask needs more hands than the
+   * task has
+   */
+  public static ResourceSchedule schedule(OverallTask task) {
+    return schedule(task, task.getHands(), PriorityRule.MIN_LATEST_START);
+  }
+
+  /**
+   * Schedules the task with the given number of hands and priority rule.
+   *
+   * @param task the task to schedule
+   * @param hands the number of hands available at any time
+   * @param rule the order in which ready subtasks are started
+   * @return the start time of every subtask of the task
+   * @throws IllegalArgumentException if a subtask needs more hands than
+   * are available
+   */
+  public static ResourceSchedule schedule(OverallTask task, int hands,
+                                          PriorityRule rule) {
+    ResourceScheduler scheduler = new ResourceScheduler(task, hands);
+    int finish = scheduler.run(scheduler.getPriorities(rule));
+    return scheduler.toSchedule(finish);
+  }
+
+  PlanTopology getTopology() {
+    return topology;
+  }
+
+  /**
+   * @return the priority of every subtask under the rule, by index
+   */
+  int[] getPriorities(PriorityRule rule) {
+    int[] priority = new int[topology.size()];
+    for (int t = 0; t < priority.length; t++) {
+      priority[t] = rule.priority(unconstrained, t);
+    }
+    return priority;
+  }
+
+  /**
+   * @return a time before which no run can finish: no schedule finishes
+   * before the unconstrained one, or before all the work can be done with
+   * every hand busy
+   */
+  int getLowerBound() {
+    long work = 0;
+    for (int t = 0; t < duration.length; t++) {
+      work += (long) duration[t] * demand[t];
+    }
+    return (int) Math.max(unconstrained.getFinishTime(),
+        (work + hands - 1) / hands);
+  }
+
+  /**
+   * Runs the list scheduler, starting ready subtasks with lower priority
+   * values first and breaking ties by index.
+   *
+   * @param priority the priority of every subtask, by index
+   * @return the finish time of the schedule; the start times are kept until
+   * the next run
+   */
+  int run(int[] priority) {
+    int n = topology.size();
+    int time = 0;
+    int free = hands;
+    int finished = 0;
+    int finish = 0;
+    ready.clear();
+    running.clear();
+
+    //subtasks that need no hands are started as soon as they are ready,
+    //the others wait in the ready heap
+    for (int t = 0; t < n; t++) {
+      waitingFor[t] = topology.getEndPred(t) - topology.getFirstPred(t);
+      if (waitingFor[t] > 0) {
+        continue;
+      }
+      start[t] = 0;
+      if (demand[t] == 0) {
+        running.push(t, key(duration[t], t));
+      } else {
+        ready.push(t, key(priority[t], t));
+      }
+    }
+
+    while (finished < n) {
+      //start ready subtasks in priority order, passing over those that need
+      //more hands than are free
+      int skippedCount = 0;
+      while (!ready.isEmpty() && free > 0) {
+        int t = ready.pop();
+        if (demand[t] <= free) {
+          start[t] = time;
+          free -= demand[t];
+          running.push(t, key(time + duration[t], t));
+        } else {
+          skipped[skippedCount++] = t;
+        }
+      }
+      for (int i = 0; i < skippedCount; i++) {
+        int t = skipped[i];
+        ready.push(t, key(priority[t], t));
+      }
+
+      //move to the next moment a subtask finishes
+      time = (int) (running.peekKey() >>> 32);
+      while (!running.isEmpty() && (int) (running.peekKey() >>> 32) == time) {
+        int t = running.pop();
+        free += demand[t];
+        finished++;
+        finish = Math.max(finish, time);
+        for (int a = topology.getFirstSucc(t); a < topology.getEndSucc(t);
+             a++) {
+          int succ = topology.getSucc(a);
+          if (--waitingFor[succ] > 0) {
+            continue;
+          }
+          if (demand[succ] == 0) {
+            start[succ] = time;
+            running.push(succ, key(time + duration[succ], succ));
+          } else {
+            ready.push(succ, key(priority[succ], succ));
+          }
+        }
+      }
+    }
+    return finish;
+  }
+
+  /**
+   * @return the schedule found by the last run, which finished at the given
+   * time
+   */
+  ResourceSchedule toSchedule(int finish) {
+    return new ResourceSchedule(topology, duration, start.clone(), finish,
+        hands);
+  }
+
+  private static long key(int priority, int index) {
+    return ((long) priority << 32) | index;
+  }
+}
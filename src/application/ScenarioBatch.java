@@ -0,0 +1,120 @@
+package application;
+
+import java.util.Arrays;
+
+/**
+ * K duration scenarios of one PlanTopology, evaluated together. The data of
+ * every subtask is laid out contiguously across scenarios: the value of
+ * subtask t in scenario k is at index t * K + k. The forward and backward
+ * passes then apply the same max-plus recurrence to K adjacent ints at a
+ * time, which a ScenarioEvaluator can run on SIMD lanes.
+ */
+public final class ScenarioBatch {
+
+  private final PlanTopology topology;
+  private final int scenarios;
+  private final int[] duration;
+  private final int[] earliestStart;
+  private final int[] latestStart;
+  private final int[] finish;
+
+  /**
+   * Creates a batch in which every scenario has the current durations of
+   * the subtasks.
+   *
+   * @param topology the dependency structure shared by the scenarios
+   * @param scenarios the number of scenarios, K
+   */
+  public ScenarioBatch(PlanTopology topology, int scenarios) {
+    this(topology, topology.getDurations(), scenarios);
+  }
+
+  /**
+   * Creates a batch in which every scenario has the given durations.
+   *
+   * @param topology the dependency structure shared by the scenarios
+   * @param base the duration of every subtask in minutes, by index
+   * @param scenarios the number of scenarios, K
+   */
+  public ScenarioBatch(PlanTopology topology, int[] base, int scenarios) {
+    if (scenarios <= 0) {
+      throw new IllegalArgumentException("At least one scenario is needed");
+    }
+    int n              = topology.size();
+    this.topology      = topology;
+    this.scenarios     = scenarios;
+    this.duration      = new int[n * scenarios];
+    this.earliestStart = new int[n * scenarios];
+    this.latestStart   = new int[n * scenarios];
+    this.finish        = new int[scenarios];
+    for (int t = 0; t < n; t++) {
+      Arrays.fill(duration, t * scenarios, (t + 1) * scenarios, base[t]);
+    }
+  }
+
+  public PlanTopology getTopology() {
+    return topology;
+  }
+
+  public int getScenarioCount() {
+    return scenarios;
+  }
+
+  public int getDuration(int index, int scenario) {
+    return duration[index * scenarios + scenario];
+  }
+
+  public void setDuration(int index, int scenario, int minutes) {
+    duration[index * scenarios + scenario] = minutes;
+  }
+
+  /**
+   * Evaluates every scenario with the default evaluator.
+   */
+  public void evaluate() {
+    ScenarioEvaluator.getDefault().evaluate(this);
+  }
+
+  /**
+   * @return the finish time of the scenario, in minutes. Only valid after
+   * the batch has been evaluated.
+   */
+  public int getFinishTime(int scenario) {
+    return finish[scenario];
+  }
+
+  public int getEarliestStart(int index, int scenario) {
+    return earliestStart[index * scenarios + scenario];
+  }
+
+  public int getLatestStart(int index, int scenario) {
+    return latestStart[index * scenarios + scenario];
+  }
+
+  public int getTotalFloat(int index, int scenario) {
+    int i = index * scenarios + scenario;
+    return latestStart[i] - earliestStart[i];
+  }
+
+  public boolean isCritical(int index, int scenario) {
+    int i = index * scenarios + scenario;
+    return latestStart[i] == earliestStart[i];
+  }
+
+  //raw arrays for the evaluators
+  int[] durations() {
+    return duration;
+  }
+
+  int[] earliestStarts() {
+    return earliestStart;
+  }
+
+  int[] latestStarts() {
+    return latestStart;
+  }
+
+  int[] finishTimes() {
+    return finish;
+  }
+}
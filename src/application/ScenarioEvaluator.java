@@ -0,0 +1,102 @@
+package application;
+
+import java.util.Arrays;
+
+/**
+ * Runs the forward and backward passes of the critical path analysis over
+ * all the scenarios of a ScenarioBatch. This class is the scalar
+ * implementation; VectorScenarioEvaluator runs the same loops on the lanes
+ * of the jdk.incubator.vector API and is used by default when it has been
+ * compiled from the optional vector source root and the module is
+ * available (run with --add-modules jdk.incubator.vector).
+ */
+public class ScenarioEvaluator {
+
+  private static final ScenarioEvaluator SCALAR = new ScenarioEvaluator();
+  private static final ScenarioEvaluator DEFAULT = loadDefault();
+
+  ScenarioEvaluator() {
+  }
+
+  private static ScenarioEvaluator loadDefault() {
+    try {
+      return (ScenarioEvaluator) Class.forName(
+          "application.VectorScenarioEvaluator").getDeclaredConstructor()
+          .newInstance();
+    } catch (ReflectiveOperationException | LinkageError e) {
+      //the vector module is not available, or this JDK does not have it
+      return SCALAR;
+    }
+  }
+
+  /**
+   * @return the vectorised evaluator if the Vector API is available, and
+   * the scalar one otherwise
+   */
+  public static ScenarioEvaluator getDefault() {
+    return DEFAULT;
+  }
+
+  public static ScenarioEvaluator getScalar() {
+    return SCALAR;
+  }
+
+  /**
+   * @return whether this evaluator uses SIMD lanes
+   */
+  public boolean isVectorised() {
+    return false;
+  }
+
+  /**
+   * Computes the earliest and latest start of every subtask and the finish
+   * time of every scenario of the batch.
+   */
+  public void evaluate(ScenarioBatch batch) {
+    PlanTopology topology = batch.getTopology();
+    int k = batch.getScenarioCount();
+    int[] duration = batch.durations();
+    int[] earliestStart = batch.earliestStarts();
+    int[] latestStart = batch.latestStarts();
+    int[] finish = batch.finishTimes();
+    int n = topology.size();
+
+    //forward pass
+    Arrays.fill(finish, 0);
+    for (int p = 0; p < n; p++) {
+      int t = topology.getOrder(p);
+      int row = t * k;
+      for (int s = 0; s < k; s++) {
+        earliestStart[row + s] = 0;
+      }
+      for (int a = topology.getFirstPred(t); a < topology.getEndPred(t); a++) {
+        int predRow = topology.getPred(a) * k;
+        for (int s = 0; s < k; s++) {
+          earliestStart[row + s] = Math.max(earliestStart[row + s],
+              earliestStart[predRow + s] + duration[predRow + s]);
+        }
+      }
+      for (int s = 0; s < k; s++) {
+        finish[s] = Math.max(finish[s], earliestStart[row + s]
+            + duration[row + s]);
+      }
+    }
+
+    //backward pass
+    for (int p = n - 1; p >= 0; p--) {
+      int t = topology.getOrder(p);
+      int row = t * k;
+      System.arraycopy(finish, 0, latestStart, row, k);
+      for (int a = topology.getFirstSucc(t); a < topology.getEndSucc(t); a++) {
+        int succRow = topology.getSucc(a) * k;
+        for (int s = 0; s < k; s++) {
+          latestStart[row + s] = Math.min(latestStart[row + s],
+              latestStart[succRow + s]);
+        }
+      }
+      for (int s = 0; s < k; s++) {
+        latestStart[row + s] -= duration[row + s];
+      }
+    }
+  }
+}
@@ -0,0 +1,179 @@
+package application;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The result of a critical path analysis of an OverallTask: the earliest and
+ * latest start and finish times and the total and free float of every
+ * SubTask, in minutes from the start of the task, and a critical path
+ * through the task. Times are stored in primitive arrays indexed like the
+ * PlanTopology the schedule was computed on. A schedule is immutable.
+ */
+public final class Schedule {
+
+  private final PlanTopology topology;
+  private final int[] duration;
+  private final int[] earliestStart;
+  private final int[] latestStart;
+  private final int[] freeFloat;
+  private final int finish;
+  private final int[] criticalPath;
+
+  Schedule(PlanTopology topology, int[] duration, int[] earliestStart,
+           int[] latestStart, int[] freeFloat, int finish) {
+    this.topology      = topology;
+    this.duration      = duration;
+    this.earliestStart = earliestStart;
+    this.latestStart   = latestStart;
+    this.freeFloat     = freeFloat;
+    this.finish        = finish;
+    this.criticalPath  = findCriticalPath();
+  }
+
+  /**
+   * Follows critical subtasks from a critical subtask without dependencies,
+   * always moving to a critical successor that starts as soon as the
+   * current subtask finishes. Such a successor exists as long as the current
+   * subtask finishes before the end of the plan, so the path runs from the
+   * start to the end of the plan.
+   */
+  private int[] findCriticalPath() {
+    int current = -1;
+    for (int p = 0; p < topology.size() && current < 0; p++) {
+      int t = topology.getOrder(p);
+      if (isCritical(t) && topology.getFirstPred(t) == topology.getEndPred(t)) {
+        current = t;
+      }
+    }
+
+    int[] path = new int[topology.size()];
+    int length = 0;
+    while (current >= 0) {
+      path[length++] = topology.getTask(current).getId();
+      int next = -1;
+      for (int a = topology.getFirstSucc(current);
+           a < topology.getEndSucc(current) && next < 0; a++) {
+        int succ = topology.getSucc(a);
+        if (isCritical(succ)
+            && earliestStart[succ] == getEarliestFinish(current)) {
+          next = succ;
+        }
+      }
+      current = next;
+    }
+    return Arrays.copyOf(path, length);
+  }
+
+  public PlanTopology getTopology() {
+    return topology;
+  }
+
+  /**
+   * @return the number of subtasks in the schedule
+   */
+  public int size() {
+    return duration.length;
+  }
+
+  /**
+   * @return the time needed to complete the whole task, in minutes
+   */
+  public int getFinishTime() {
+    return finish;
+  }
+
+  public int getDuration(int index) {
+    return duration[index];
+  }
+
+  public int getEarliestStart(int index) {
+    return earliestStart[index];
+  }
+
+  public int getEarliestFinish(int index) {
+    return earliestStart[index] + duration[index];
+  }
+
+  public int getLatestStart(int index) {
+    return latestStart[index];
+  }
+
+  public int getLatestFinish(int index) {
+    return latestStart[index] + duration[index];
+  }
+
+  public int getTotalFloat(int index) {
+    return latestStart[index] - earliestStart[index];
+  }
+
+  /**
+   * @return the time the subtask can be delayed by without delaying the
+   * earliest start of any subtask depending on it
+   */
+  public int getFreeFloat(int index) {
+    return freeFloat[index];
+  }
+
+  public boolean isCritical(int index) {
+    return latestStart[index] == earliestStart[index];
+  }
+
+  /**
+   * @return the IDs of the subtasks of a critical path, in the order they
+   * are carried out. Delaying any of them delays the whole task.
+   */
+  public int[] getCriticalPath() {
+    return criticalPath.clone();
+  }
+
+  /**
+   * @return the subtasks of the critical path, in the order they are carried
+   * out
+   */
+  public List<SubTask> getCriticalPathTasks() {
+    List<SubTask> tasks = new ArrayList<>(criticalPath.length);
+    for (int id : criticalPath) {
+      tasks.add(topology.getTask(topology.indexOfId(id)));
+    }
+    return tasks;
+  }
+
+  public int getEarliestStart(SubTask subTask) {
+    return getEarliestStart(indexOf(subTask));
+  }
+
+  public int getEarliestFinish(SubTask subTask) {
+    return getEarliestFinish(indexOf(subTask));
+  }
+
+  public int getLatestStart(SubTask subTask) {
+    return getLatestStart(indexOf(subTask));
+  }
+
+  public int getLatestFinish(SubTask subTask) {
+    return getLatestFinish(indexOf(subTask));
+  }
+
+  public int getTotalFloat(SubTask subTask) {
+    return getTotalFloat(indexOf(subTask));
+  }
+
+  public int getFreeFloat(SubTask subTask) {
+    return getFreeFloat(indexOf(subTask));
+  }
+
+  public boolean isCritical(SubTask subTask) {
+    return isCritical(indexOf(subTask));
+  }
+
+  private int indexOf(SubTask subTask) {
+    int index = topology.indexOf(subTask);
+    if (index < 0) {
+      throw new IllegalArgumentException(subTask.getTaskName()
+          + " is not part of this schedule");
+    }
+    return index;
+  }
+}
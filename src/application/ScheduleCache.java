@@ -0,0 +1,236 @@
+package application;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A cache of the schedules of OverallTasks. Each schedule is stored with the
+ * version of its task, the count of changes made to its subtasks and
+ * dependencies, see OverallTask.getVersion. A schedule is returned from the
+ * cache as long as the version of the task is unchanged, so only tasks that
+ * have actually been modified are scheduled again, and a hit neither walks
+ * nor loads the subtasks of the task.
+ *
+ * The schedules are kept by the tasks themselves, since a schedule refers
+ * to its task. The cache only holds weak references to the tasks, in least
+ * recently used order, to evict schedules once their estimated size exceeds
+ * the memory cap; a task that is no longer used elsewhere is collected along
+ * with its schedule, without having to be removed.
+ */
+public final class ScheduleCache {
+
+  public static final long DEFAULT_MEMORY_CAP = 16L * 1024 * 1024;
+
+  private static final ScheduleCache DEFAULT = new ScheduleCache(
+      DEFAULT_MEMORY_CAP);
+
+  //tasks with a schedule of this cache, least recently used first
+  private final Map<Key, Key> tasks;
+  private final ReferenceQueue<OverallTask> collected = new ReferenceQueue<>();
+  private long memoryCap;
+  private long memoryUsed;
+
+  /**
+   * @param memoryCap the maximum estimated size of the cached schedules, in
+   * bytes
+   */
+  public ScheduleCache(long memoryCap) {
+    this.tasks     = new LinkedHashMap<>(16, 0.75f, true);
+    this.memoryCap = memoryCap;
+  }
+
+  /**
+   * @return the cache shared by the whole application
+   */
+  public static ScheduleCache getDefault() {
+    return DEFAULT;
+  }
+
+  /**
+   * Returns the schedule of the task, computing it only if the task has
+   * changed since it was last scheduled through this cache.
+   *
+   * @param task the task to schedule
+   * @return the schedule of the task
+   * @throws IllegalStateException if the dependencies contain a cycle
+   */
+  public Schedule getSchedule(OverallTask task) {
+    int version = task.getVersion();
+    synchronized (this) {
+      Entry entry = task.getScheduleEntry();
+      if (entry != null && entry.cache == this && entry.version == version) {
+        //marks the task as recently used
+        tasks.get(new Key(task, null));
+        return entry.schedule;
+      }
+    }
+
+    Schedule schedule = ActivityOnNodeScheduler.schedule(task);
+    put(task, version, schedule);
+    return schedule;
+  }
+
+  /**
+   * Keeps a schedule computed elsewhere, see PlanSnapshot.
+   *
+   * @param task the task scheduled
+   * @param version the version of the task the schedule was computed for
+   * @param schedule the schedule of the task at that version
+   */
+  void put(OverallTask task, int version, Schedule schedule) {
+    Entry entry = new Entry(this, version, schedule);
+    synchronized (this) {
+      Entry current = task.getScheduleEntry();
+      if (current != null && current.cache == this
+          && current.version > version) {
+        //the task has been scheduled again since the snapshot
+        return;
+      }
+      expungeCollected();
+      Key key = tasks.get(new Key(task, null));
+      if (key == null) {
+        key = new Key(task, collected);
+        tasks.put(key, key);
+      } else {
+        memoryUsed -= key.size;
+      }
+      task.setScheduleEntry(entry);
+      key.size = entry.size;
+      memoryUsed += key.size;
+      evict();
+    }
+  }
+
+  public synchronized void setMemoryCap(long memoryCap) {
+    this.memoryCap = memoryCap;
+    evict();
+  }
+
+  public synchronized long getMemoryCap() {
+    return memoryCap;
+  }
+
+  /**
+   * @return the estimated size of the cached schedules, in bytes
+   */
+  public synchronized long getMemoryUsed() {
+    expungeCollected();
+    return memoryUsed;
+  }
+
+  public synchronized int size() {
+    expungeCollected();
+    return tasks.size();
+  }
+
+  public synchronized void remove(OverallTask task) {
+    Key key = tasks.remove(new Key(task, null));
+    if (key != null) {
+      drop(key);
+    }
+  }
+
+  public synchronized void clear() {
+    tasks.keySet().forEach(this::drop);
+    tasks.clear();
+  }
+
+  private void evict() {
+    Iterator<Key> lru = tasks.keySet().iterator();
+    while (memoryUsed > memoryCap && lru.hasNext()) {
+      drop(lru.next());
+      lru.remove();
+    }
+  }
+
+  //forgets the schedule of the task of the key, once it has left the map
+  private void drop(Key key) {
+    memoryUsed -= key.size;
+    OverallTask task = key.get();
+    if (task != null && task.getScheduleEntry() != null
+        && task.getScheduleEntry().cache == this) {
+      task.setScheduleEntry(null);
+    }
+  }
+
+  //forgets the tasks that have been garbage collected
+  private void expungeCollected() {
+    for (Object key; (key = collected.poll()) != null; ) {
+      if (tasks.remove(key) != null) {
+        memoryUsed -= ((Key) key).size;
+      }
+    }
+  }
+
+  /**
+   * @return a rough estimate of the heap used by the schedule and its
+   * topology, in bytes
+   */
+  private static long estimateSize(Schedule schedule) {
+    PlanTopology topology = schedule.getTopology();
+    long n = topology.size();
+    long arcs = topology.getArcCount();
+    long ints = topology.getIdLimit()       //index by ID
+        + 2 * (n + 1 + arcs)                //predecessors and successors
+        + 2 * n                             //order and position
+        + topology.getLevelCount() + 1 + n  //levels
+        + 4 * n                             //durations, times and floats
+        + n;                                //at most, the critical path
+    return 4 * ints + 8 * n + 256;
+  }
+
+  /**
+   * Weak reference to a task, equal to any other reference to the same
+   * task. A reference whose task has been collected is only equal to
+   * itself.
+   */
+  private static final class Key extends WeakReference<OverallTask> {
+
+    private final int hash;
+    //estimated size of the schedule of the task
+    private long size;
+
+    Key(OverallTask task, ReferenceQueue<OverallTask> queue) {
+      super(task, queue);
+      this.hash = System.identityHashCode(task);
+    }
+
+    @Override
+    public int hashCode() {
+      return hash;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof Key)) {
+        return false;
+      }
+      OverallTask task = get();
+      return task != null && task == ((Key) o).get();
+    }
+  }
+
+  /**
+   * A schedule of a task, as kept by the task.
+   */
+  static final class Entry {
+
+    private final ScheduleCache cache;
+    private final int version;
+    private final Schedule schedule;
+    private final long size;
+
+    Entry(ScheduleCache cache, int version, Schedule schedule) {
+      this.cache    = cache;
+      this.version  = version;
+      this.schedule = schedule;
+      this.size     = estimateSize(schedule);
+    }
+  }
+}
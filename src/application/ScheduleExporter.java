@@ -0,0 +1,541 @@
+package application;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Writes the schedules of OverallTasks to an OutputStream, one task after
+ * the other, in one of three formats:
+ *
+ * CSV          a header and a row per subtask: task, subtask, earliest and
+ *              latest start and finish, total and free float and whether it
+ *              is critical
+ * JSON Lines   the same as one object per line
+ * iCalendar    a VEVENT per task, from its start until its subtasks finish,
+ *              in a VCALENDAR
+ *
+ * Times are written as local date-times, counted from the start time of
+ * each task on the given date, and floats in minutes. Everything is encoded
+ * straight into one reusable buffer, which is written to the stream
+ * whenever it fills up, so no strings are built for a whole task and the
+ * memory used does not depend on the size of the export.
+ */
+public final class ScheduleExporter implements Closeable {
+
+  public enum Format {
+    CSV, JSON_LINES, ICALENDAR;
+
+    /**
+     * @return ICALENDAR for a file ending in .ics, JSON_LINES for one ending
+     * in .jsonl or .json, CSV otherwise
+     */
+    public static Format of(String fileName) {
+      String name = fileName.toLowerCase(Locale.ROOT);
+      if (name.endsWith(".ics")) {
+        return ICALENDAR;
+      }
+      return name.endsWith(".jsonl") || name.endsWith(".json") ? JSON_LINES
+          : CSV;
+    }
+  }
+
+  /** Size the buffer is written out at*/
+  private static final int FLUSH_SIZE = 1 << 16;
+  /** Longest iCalendar line, in bytes, before it is folded*/
+  private static final int ICALENDAR_LINE_LENGTH = 75;
+  private static final byte[] CRLF = {'\r', '\n'};
+
+  private static final int CSV_TEXT = 1;
+  private static final int JSON_TEXT = 2;
+  private static final int ICALENDAR_TEXT = 3;
+
+  private final OutputStream out;
+  private final Format format;
+  private final LocalDate date;
+  private final ByteBuilder buffer = new ByteBuilder(FLUSH_SIZE + 4096);
+  //the iCalendar line being written, folded when it is complete
+  private final ByteBuilder line = new ByteBuilder(256);
+  private final String timestamp;
+  //how many tasks of each name and start time have been exported, to tell
+  //their events apart
+  private final Map<String, Integer> eventCounts = new HashMap<>();
+
+  //the date last written, cached since most times fall on few days
+  private int cachedDay = Integer.MIN_VALUE;
+  private int cachedYear;
+  private int cachedMonth;
+  private int cachedDayOfMonth;
+
+  /**
+   * Starts an export, writing the header of the format.
+   *
+   * @param out the stream to write to
+   * @param format the format to write
+   * @param date the day the tasks start on
+   * @throws IOException if the header cannot be written
+   */
+  public ScheduleExporter(OutputStream out, Format format, LocalDate date)
+      throws IOException {
+    this.out       = out;
+    this.format    = format;
+    this.date      = date;
+    this.timestamp = LocalDateTime.now(ZoneOffset.UTC).format(
+        DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss"));
+    if (format == Format.CSV) {
+      writeAscii("task,subtask,earliest_start,earliest_finish,latest_start,"
+          + "latest_finish,total_float,free_float,critical");
+      buffer.write(CRLF, 0, 2);
+    } else if (format == Format.ICALENDAR) {
+      writeLine("BEGIN:VCALENDAR");
+      writeLine("VERSION:2.0");
+      writeLine("PRODID:-//CPA Project//Schedule Export//EN");
+    }
+  }
+
+  /**
+   * Writes the schedule of the task, see OverallTask.schedule.
+   *
+   * @throws IOException if the stream cannot be written
+   * @throws IllegalStateException if the dependencies contain a cycle
+   */
+  public void export(OverallTask task) throws IOException {
+    export(task, task.schedule());
+  }
+
+  /**
+   * Writes the given schedule of the task.
+   *
+   * @throws IOException if the stream cannot be written
+   */
+  public void export(OverallTask task, Schedule schedule) throws IOException {
+    export(task.getTaskName(), task.getDescription(),
+        Time.toMinutes(task.getStartTime()), schedule, null);
+  }
+
+  /**
+   * Writes the schedule of the snapshot, see PlanSnapshot.schedule. Only the
+   * snapshot is read, so its task may be edited on another thread meanwhile.
+   *
+   * @throws IOException if the stream cannot be written
+   */
+  public void export(PlanSnapshot snapshot) throws IOException {
+    export(snapshot.getTaskName(), snapshot.getDescription(),
+        snapshot.getStartTime(), snapshot.schedule(), snapshot);
+  }
+
+  //the names of the subtasks are read from the snapshot if there is one
+  private void export(String taskName, String description, int start,
+                      Schedule schedule, PlanSnapshot snapshot)
+      throws IOException {
+    if (format == Format.ICALENDAR) {
+      writeEvent(taskName, description, start,
+          start + schedule.getFinishTime());
+    } else {
+      PlanTopology topology = schedule.getTopology();
+      for (int p = 0; p < topology.size(); p++) {
+        int t = topology.getOrder(p);
+        String subTaskName = snapshot != null ? snapshot.getSubTaskName(t)
+            : topology.getTask(t).getTaskName();
+        if (format == Format.CSV) {
+          writeCsvRow(taskName, subTaskName, schedule, t, start);
+        } else {
+          writeJsonRow(taskName, subTaskName, schedule, t, start);
+        }
+        flushIfFull();
+      }
+    }
+    flushIfFull();
+  }
+
+  private void writeCsvRow(String taskName, String subTaskName,
+                           Schedule schedule, int t, int start) {
+    writeText(taskName, CSV_TEXT);
+    buffer.writeByte(',');
+    writeText(subTaskName, CSV_TEXT);
+    buffer.writeByte(',');
+    writeDateTime(start + schedule.getEarliestStart(t), false);
+    buffer.writeByte(',');
+    writeDateTime(start + schedule.getEarliestFinish(t), false);
+    buffer.writeByte(',');
+    writeDateTime(start + schedule.getLatestStart(t), false);
+    buffer.writeByte(',');
+    writeDateTime(start + schedule.getLatestFinish(t), false);
+    buffer.writeByte(',');
+    writeNumber(schedule.getTotalFloat(t));
+    buffer.writeByte(',');
+    writeNumber(schedule.getFreeFloat(t));
+    buffer.writeByte(',');
+    writeAscii(schedule.isCritical(t) ? "true" : "false");
+    buffer.write(CRLF, 0, 2);
+  }
+
+  private void writeJsonRow(String taskName, String subTaskName,
+                            Schedule schedule, int t, int start) {
+    writeAscii("{\"task\":\"");
+    writeText(taskName, JSON_TEXT);
+    writeAscii("\",\"subtask\":\"");
+    writeText(subTaskName, JSON_TEXT);
+    writeAscii("\",\"earliestStart\":\"");
+    writeDateTime(start + schedule.getEarliestStart(t), false);
+    writeAscii("\",\"earliestFinish\":\"");
+    writeDateTime(start + schedule.getEarliestFinish(t), false);
+    writeAscii("\",\"latestStart\":\"");
+    writeDateTime(start + schedule.getLatestStart(t), false);
+    writeAscii("\",\"latestFinish\":\"");
+    writeDateTime(start + schedule.getLatestFinish(t), false);
+    writeAscii("\",\"totalFloat\":");
+    writeNumber(schedule.getTotalFloat(t));
+    writeAscii(",\"freeFloat\":");
+    writeNumber(schedule.getFreeFloat(t));
+    writeAscii(schedule.isCritical(t) ? ",\"critical\":true}\n"
+        : ",\"critical\":false}\n");
+  }
+
+  /**
+   * Writes a VEVENT for the task. Its UID is made of the start of the task
+   * and a hash of its name, so exporting the same tasks again updates the
+   * events instead of duplicating them, whatever other tasks are added,
+   * removed or reordered. Tasks of the same name and start are told apart
+   * by their order.
+   */
+  private void writeEvent(String name, String description, int start,
+                          int finish) {
+    int count = eventCounts.merge(start + " " + name, 1, Integer::sum);
+    startLine("BEGIN:VEVENT");
+    endLine();
+    startLine("UID:");
+    writeDateTime(start, true);
+    line.writeByte('-');
+    writeAscii(Long.toHexString(hash(name)));
+    if (count > 1) {
+      line.writeByte('-');
+      writeNumber(count);
+    }
+    writeAscii("@cpaproject");
+    endLine();
+    startLine("DTSTAMP:");
+    writeAscii(timestamp);
+    line.writeByte('Z');
+    endLine();
+    startLine("DTSTART:");
+    writeDateTime(start, true);
+    endLine();
+    startLine("DTEND:");
+    writeDateTime(finish, true);
+    endLine();
+    startLine("SUMMARY:");
+    writeText(name, ICALENDAR_TEXT);
+    endLine();
+    if (description != null && !description.isEmpty()) {
+      startLine("DESCRIPTION:");
+      writeText(description, ICALENDAR_TEXT);
+      endLine();
+    }
+    startLine("END:VEVENT");
+    endLine();
+  }
+
+  /**
+   * @return the 64-bit FNV-1a hash of the name, which unlike String.hashCode
+   * rarely collides for the names of a workspace
+   */
+  private static long hash(String name) {
+    long hash = 0xcbf29ce484222325L;
+    for (int i = 0; i < name.length(); i++) {
+      hash = (hash ^ name.charAt(i)) * 0x100000001b3L;
+    }
+    return hash;
+  }
+
+  private void writeLine(String ascii) {
+    startLine(ascii);
+    endLine();
+  }
+
+  private void startLine(String name) {
+    line.clear();
+    writeAscii(name);
+  }
+
+  /**
+   * Copies the iCalendar line to the buffer, folded into lines of at most
+   * ICALENDAR_LINE_LENGTH bytes without splitting a UTF-8 sequence.
+   */
+  private void endLine() {
+    byte[] bytes = line.array();
+    int from = 0;
+    int limit = ICALENDAR_LINE_LENGTH;
+    while (line.size() - from > limit) {
+      int to = from + limit;
+      while ((bytes[to] & 0xC0) == 0x80) {
+        to--;
+      }
+      buffer.write(bytes, from, to - from);
+      buffer.write(CRLF, 0, 2);
+      buffer.writeByte(' ');
+      from = to;
+      //the leading space counts towards the length of the next line
+      limit = ICALENDAR_LINE_LENGTH - 1;
+    }
+    buffer.write(bytes, from, line.size() - from);
+    buffer.write(CRLF, 0, 2);
+  }
+
+  /**
+   * @return where text is being written: the current iCalendar line, or the
+   * buffer
+   */
+  private ByteBuilder target() {
+    return format == Format.ICALENDAR ? line : buffer;
+  }
+
+  private void writeAscii(String ascii) {
+    ByteBuilder target = target();
+    for (int i = 0; i < ascii.length(); i++) {
+      target.writeByte(ascii.charAt(i));
+    }
+  }
+
+  private void writeNumber(long value) {
+    ByteBuilder target = target();
+    if (value < 0) {
+      target.writeByte('-');
+      value = -value;
+    }
+    if (value >= 10) {
+      writeNumber(value / 10);
+    }
+    target.writeByte('0' + (int) (value % 10));
+  }
+
+  private void writeDigits(int value, int digits) {
+    ByteBuilder target = target();
+    for (int divisor = digits == 4 ? 1000 : 10; divisor > 0; divisor /= 10) {
+      target.writeByte('0' + value / divisor % 10);
+    }
+  }
+
+  private void writeDate(int day, boolean basic) {
+    if (day != cachedDay) {
+      LocalDate d = date.plusDays(day);
+      cachedDay        = day;
+      cachedYear       = d.getYear();
+      cachedMonth      = d.getMonthValue();
+      cachedDayOfMonth = d.getDayOfMonth();
+    }
+    writeDigits(cachedYear, 4);
+    if (!basic) {
+      target().writeByte('-');
+    }
+    writeDigits(cachedMonth, 2);
+    if (!basic) {
+      target().writeByte('-');
+    }
+    writeDigits(cachedDayOfMonth, 2);
+  }
+
+  /**
+   * Writes minutes from midnight of the date as an ISO 8601 local
+   * date-time, 2024-01-31T09:30, or, in the basic format of iCalendar,
+   * 20240131T093000.
+   */
+  private void writeDateTime(int minutes, boolean basic) {
+    writeDate(Time.dayOf(minutes), basic);
+    int minuteOfDay = Math.floorMod(minutes, Time.MINUTES_IN_DAY);
+    target().writeByte('T');
+    writeDigits(minuteOfDay / Time.MINUTES_IN_HOUR, 2);
+    if (!basic) {
+      target().writeByte(':');
+    }
+    writeDigits(minuteOfDay % Time.MINUTES_IN_HOUR, 2);
+    if (basic) {
+      writeAscii("00");
+    }
+  }
+
+  /**
+   * Writes the text as UTF-8, escaped for the given context. CSV text is
+   * quoted if it contains a comma, a quote or a line break.
+   */
+  private void writeText(String text, int escape) {
+    ByteBuilder target = target();
+    boolean quote = escape == CSV_TEXT && needsQuotes(text);
+    if (quote) {
+      target.writeByte('"');
+    }
+    for (int i = 0; i < text.length(); i++) {
+      char c = text.charAt(i);
+      if (c < 0x80) {
+        writeEscaped(target, c, escape);
+      } else if (c < 0x800) {
+        target.writeByte(0xC0 | c >> 6);
+        target.writeByte(0x80 | c & 0x3F);
+      } else if (Character.isHighSurrogate(c) && i + 1 < text.length()
+          && Character.isLowSurrogate(text.charAt(i + 1))) {
+        int codePoint = Character.toCodePoint(c, text.charAt(++i));
+        target.writeByte(0xF0 | codePoint >> 18);
+        target.writeByte(0x80 | codePoint >> 12 & 0x3F);
+        target.writeByte(0x80 | codePoint >> 6 & 0x3F);
+        target.writeByte(0x80 | codePoint & 0x3F);
+      } else {
+        //a lone surrogate is written as the replacement character
+        int codePoint = Character.isSurrogate(c) ? 0xFFFD : c;
+        target.writeByte(0xE0 | codePoint >> 12);
+        target.writeByte(0x80 | codePoint >> 6 & 0x3F);
+        target.writeByte(0x80 | codePoint & 0x3F);
+      }
+    }
+    if (quote) {
+      target.writeByte('"');
+    }
+  }
+
+  private static boolean needsQuotes(String text) {
+    for (int i = 0; i < text.length(); i++) {
+      char c = text.charAt(i);
+      if (c == ',' || c == '"' || c == '\r' || c == '\n') {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static void writeEscaped(ByteBuilder target, char c, int escape) {
+    switch (escape) {
+      case CSV_TEXT:
+        if (c == '"') {
+          target.writeByte('"');
+        }
+        break;
+      case JSON_TEXT:
+        if (c == '"' || c == '\\') {
+          target.writeByte('\\');
+        } else if (c < 0x20) {
+          target.writeByte('\\');
+          target.writeByte('u');
+          target.writeByte('0');
+          target.writeByte('0');
+          target.writeByte(Character.forDigit(c >> 4, 16));
+          target.writeByte(Character.forDigit(c & 0xF, 16));
+          return;
+        }
+        break;
+      case ICALENDAR_TEXT:
+        if (c == '\n') {
+          target.writeByte('\\');
+          target.writeByte('n');
+          return;
+        }
+        if (c == '\r') {
+          return;
+        }
+        if (c == '\\' || c == ';' || c == ',') {
+          target.writeByte('\\');
+        }
+        break;
+      default:
+        break;
+    }
+    target.writeByte(c);
+  }
+
+  private void flushIfFull() throws IOException {
+    if (buffer.size() >= FLUSH_SIZE) {
+      buffer.writeTo(out);
+      buffer.clear();
+    }
+  }
+
+  /**
+   * Writes everything exported so far to the stream and flushes it.
+   *
+   * @throws IOException if the stream cannot be written
+   */
+  public void flush() throws IOException {
+    buffer.writeTo(out);
+    buffer.clear();
+    out.flush();
+  }
+
+  /**
+   * Ends the export, writing the trailer of the format, and closes the
+   * stream.
+   *
+   * @throws IOException if the stream cannot be written
+   */
+  @Override
+  public void close() throws IOException {
+    try {
+      if (format == Format.ICALENDAR) {
+        writeLine("END:VCALENDAR");
+      }
+      flush();
+    } finally {
+      out.close();
+    }
+  }
+
+  public static void main(String[] args) throws IOException {
+    int taskCount = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+    int size = args.length > 1 ? Integer.parseInt(args[1]) : 500;
+    Random random = new Random(42);
+
+    OverallTask[] tasks = new OverallTask[taskCount];
+    for (int k = 0; k < taskCount; k++) {
+      tasks[k] = new OverallTask("Plan " + k, new Duration(0, 0),
+          new Time(random.nextInt(24), random.nextInt(60)), "Plan, number " + k);
+      SubTask[] subTasks = new SubTask[size];
+      for (int i = 0; i < size; i++) {
+        subTasks[i] = new SubTask("Task \"" + i + "\"",
+            new Duration(0, 1 + random.nextInt(59)));
+        for (int d = 0; d < 2 && i > 0; d++) {
+          SubTask dep = subTasks[Math.max(0, i - 1 - random.nextInt(50))];
+          if (!subTasks[i].getDependencies().contains(dep)) {
+            subTasks[i].addDependency(dep);
+          }
+        }
+      }
+      for (int i = Math.max(0, size - 20); i < size; i++) {
+        tasks[k].addSubTask(subTasks[i]);
+      }
+      tasks[k].schedule();
+    }
+
+    //counts the bytes without keeping them, to measure the encoding alone
+    long[] written = new long[1];
+    OutputStream sink = new OutputStream() {
+      @Override
+      public void write(int b) {
+        written[0]++;
+      }
+
+      @Override
+      public void write(byte[] b, int off, int len) {
+        written[0] += len;
+      }
+    };
+    for (Format format : Format.values()) {
+      written[0] = 0;
+      long start = System.nanoTime();
+      try (ScheduleExporter exporter = new ScheduleExporter(sink, format,
+          LocalDate.of(2024, 1, 31))) {
+        for (OverallTask task : tasks) {
+          exporter.export(task);
+        }
+      }
+      long time = System.nanoTime() - start;
+      System.out.printf("%s, %d tasks of %d subtasks: %d bytes in %.0f ms, "
+              + "%.0f MB/s%n", format, taskCount, size, written[0],
+          time / 1e6, written[0] / 1e6 / (time / 1e9));
+    }
+  }
+}
@@ -0,0 +1,351 @@
+package application;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+
+/**
+ * An anytime optimiser of the resource-constrained schedule of an
+ * OverallTask. The ResourceScheduler starts ready subtasks in the order of a
+ * priority per subtask; this optimiser searches for priorities that finish
+ * the task earlier by simulated annealing, swapping the priorities of two
+ * subtasks at a time and running the list scheduler on the result.
+ *
+ * The search runs as a number of independent restarts on an executor, by
+ * default one per available processor of a pool shared by all optimisers.
+ * A restart runs for at most SLICE_MILLIS at a time and then submits itself
+ * again, so the searches of several optimisers take turns on the pool
+ * rather than waiting for each other; the time budget is counted from when
+ * the first slice of the search starts. The first restart starts from the
+ * least latest start rule, the others from randomly perturbed copies of it.
+ * Whenever a restart finds a schedule that is better than any found so far,
+ * the listener is given it, so the best schedule can be shown while the
+ * search goes on. The search stops when the time budget is used up, when it
+ * is cancelled, or when a schedule reaches the lower bound on the finish
+ * time.
+ *
+ * The task is read once, when the optimiser is created; the restarts only
+ * work on that snapshot and never touch the task.
+ */
+public final class ScheduleOptimiser {
+
+  /** Number of moves between two checks of the clock*/
+  private static final int CLOCK_INTERVAL = 64;
+  /** Time a restart runs for before letting other work on the executor*/
+  private static final long SLICE_MILLIS = 20;
+  /** Initial temperature, as a fraction of the initial finish time*/
+  private static final double INITIAL_TEMPERATURE = 0.02;
+  /** Temperature at the end of the budget, as a fraction of the initial*/
+  private static final double FINAL_TEMPERATURE = 0.001;
+
+  private final ResourceScheduler prototype;
+  private final int[] initialPriority;
+  private final int lowerBound;
+  private final List<Restart> restarts = new ArrayList<>();
+  private ExecutorService executor;
+  private long budgetNanos;
+  //when the budget is used up, set by the first slice that runs
+  private long budgetEnd;
+  private boolean started;
+  private volatile boolean cancelled;
+  private volatile int bestFinish;
+  private ResourceSchedule best;
+  private Consumer<ResourceSchedule> listener;
+
+  /**
+   * @throws IllegalArgumentException if a subtask needs more hands than the
+   * task has
+   */
+  ScheduleOptimiser(OverallTask task) {
+    this.prototype       = new ResourceScheduler(task, task.getHands());
+    this.initialPriority = ranks(prototype.getPriorities(
+        ResourceScheduler.PriorityRule.MIN_LATEST_START));
+    this.lowerBound      = prototype.getLowerBound();
+    this.bestFinish      = prototype.run(initialPriority);
+    this.best            = prototype.toSchedule(bestFinish);
+  }
+
+  /**
+   * Starts the search on a shared pool of daemon threads, with one restart
+   * per available processor.
+   *
+   * @param budgetMillis the time the search may take, in milliseconds
+   * @param listener given every schedule that is better than all found
+   * before, from the thread of the restart that found it
+   * @throws IllegalStateException if the search has already been started
+   */
+  public void start(long budgetMillis, Consumer<ResourceSchedule> listener) {
+    start(Workers.POOL, Workers.SIZE, budgetMillis, listener);
+  }
+
+  /**
+   * Starts the search on the given executor.
+   *
+   * @param executor the executor to run the restarts on
+   * @param restartCount the number of independent restarts
+   * @param budgetMillis the time the search may take, in milliseconds
+   * @param listener given every schedule that is better than all found
+   * before, from the thread of the restart that found it
+   * @throws IllegalStateException if the search has already been started
+   */
+  public synchronized void start(ExecutorService executor, int restartCount,
+                                 long budgetMillis,
+                                 Consumer<ResourceSchedule> listener) {
+    if (!restarts.isEmpty() || cancelled) {
+      throw new IllegalStateException("The search has already been started");
+    }
+    if (restartCount < 1 || budgetMillis < 1) {
+      throw new IllegalArgumentException(
+          "The search needs at least one restart and one millisecond");
+    }
+    this.listener    = listener;
+    this.executor    = executor;
+    this.budgetNanos = budgetMillis * 1_000_000;
+    SplittableRandom random = new SplittableRandom(initialPriority.length);
+    for (int r = 0; r < restartCount; r++) {
+      Restart restart = new Restart(r, random.split());
+      restarts.add(restart);
+      restart.future = executor.submit(restart);
+    }
+  }
+
+  /**
+   * Stops the search. Restarts that are running finish their current move;
+   * the listener may still be given a schedule while they do.
+   */
+  public synchronized void cancel() {
+    cancelled = true;
+    for (Restart restart : restarts) {
+      restart.future.cancel(false);
+    }
+  }
+
+  /**
+   * Waits for every restart to stop.
+   *
+   * @return the best schedule found
+   * @throws InterruptedException if the waiting thread is interrupted
+   */
+  public ResourceSchedule await() throws InterruptedException {
+    for (Restart restart : getRestarts()) {
+      //a slice submits the next one before it ends, so the restart is over
+      //once a slice ends without having submitted another
+      Future<?> slice = getFuture(restart);
+      while (true) {
+        try {
+          slice.get();
+        } catch (CancellationException e) {
+          //cancelled before it started, nothing to wait for
+        } catch (ExecutionException e) {
+          throw new IllegalStateException("A restart of the search failed",
+              e.getCause());
+        }
+        Future<?> next = getFuture(restart);
+        if (next == slice) {
+          break;
+        }
+        slice = next;
+      }
+    }
+    return getBest();
+  }
+
+  /**
+   * @return the best schedule found so far, at first the one of the least
+   * latest start rule
+   */
+  public synchronized ResourceSchedule getBest() {
+    return best;
+  }
+
+  /**
+   * @return a time, in minutes, before which no schedule of the task can
+   * finish
+   */
+  public int getLowerBound() {
+    return lowerBound;
+  }
+
+  private synchronized List<Restart> getRestarts() {
+    return new ArrayList<>(restarts);
+  }
+
+  private synchronized Future<?> getFuture(Restart restart) {
+    return restart.future;
+  }
+
+  /**
+   * @return when the budget is used up, counted from the first call
+   */
+  private synchronized long getDeadline() {
+    if (!started) {
+      budgetEnd = System.nanoTime() + budgetNanos;
+      started   = true;
+    }
+    return budgetEnd;
+  }
+
+  /**
+   * Runs the next slice of the restart later, unless the search has been
+   * cancelled.
+   */
+  private synchronized void resubmit(Restart restart) {
+    if (!cancelled) {
+      restart.future = executor.submit(restart);
+    }
+  }
+
+  private boolean isFinished() {
+    return cancelled || bestFinish <= lowerBound;
+  }
+
+  /**
+   * Keeps the last run of the scheduler if it is the best so far.
+   */
+  private synchronized void offer(ResourceScheduler scheduler, int finish) {
+    if (finish >= bestFinish) {
+      return;
+    }
+    bestFinish = finish;
+    best = scheduler.toSchedule(finish);
+    if (listener != null) {
+      listener.accept(best);
+    }
+  }
+
+  /**
+   * One annealing run, with its own scheduler and random numbers, carried
+   * out one slice at a time.
+   */
+  private final class Restart implements Runnable {
+
+    private final int index;
+    private final SplittableRandom random;
+    //the slice submitted last, guarded by the optimiser
+    private Future<?> future;
+
+    //the state of the run between slices
+    private ResourceScheduler scheduler;
+    private int[] priority;
+    private int finish;
+    private long begin;
+    private long deadline;
+    private double initialTemperature;
+    private double temperature;
+    private long move;
+
+    Restart(int index, SplittableRandom random) {
+      this.index  = index;
+      this.random = random;
+    }
+
+    @Override
+    public void run() {
+      int n = initialPriority.length;
+      if (n < 2 || isFinished()) {
+        return;
+      }
+      if (scheduler == null) {
+        begin = System.nanoTime();
+        deadline = getDeadline();
+        scheduler = new ResourceScheduler(prototype);
+        priority = initialPriority.clone();
+        if (index > 0) {
+          //every other restart starts from its own perturbation of the rule,
+          //moving each subtask up to a quarter of the plan away from its rank
+          int spread = Math.max(1, n / 4);
+          for (int t = 0; t < n; t++) {
+            priority[t] += random.nextInt(spread);
+          }
+          priority = ranks(priority);
+        }
+        finish = scheduler.run(priority);
+        offer(scheduler, finish);
+        initialTemperature = Math.max(1, finish * INITIAL_TEMPERATURE);
+        temperature = initialTemperature;
+      }
+
+      long sliceEnd = System.nanoTime() + SLICE_MILLIS * 1_000_000;
+      for (; !isFinished(); move++) {
+        if (move % CLOCK_INTERVAL == 0) {
+          long now = System.nanoTime();
+          if (now - deadline >= 0) {
+            return;
+          }
+          if (now - sliceEnd >= 0) {
+            resubmit(this);
+            return;
+          }
+          double elapsed = (double) (now - begin) / (deadline - begin);
+          temperature = initialTemperature
+              * Math.pow(FINAL_TEMPERATURE, elapsed);
+        }
+
+        int a = random.nextInt(n);
+        int b = random.nextInt(n);
+        if (a == b) {
+          continue;
+        }
+        swap(priority, a, b);
+        int next = scheduler.run(priority);
+        int delta = next - finish;
+        if (delta <= 0
+            || random.nextDouble() < Math.exp(-delta / temperature)) {
+          finish = next;
+          if (finish < bestFinish) {
+            offer(scheduler, finish);
+          }
+        } else {
+          swap(priority, a, b);
+        }
+      }
+    }
+  }
+
+  /**
+   * Replaces priorities by their ranks, breaking ties by index, so that
+   * every swap changes the order in which subtasks are started.
+   */
+  private static int[] ranks(int[] priority) {
+    long[] keys = new long[priority.length];
+    for (int t = 0; t < priority.length; t++) {
+      keys[t] = ((long) priority[t] << 32) | t;
+    }
+    Arrays.sort(keys);
+    int[] rank = new int[priority.length];
+    for (int r = 0; r < keys.length; r++) {
+      rank[(int) keys[r]] = r;
+    }
+    return rank;
+  }
+
+  private static void swap(int[] array, int a, int b) {
+    int tmp = array[a];
+    array[a] = array[b];
+    array[b] = tmp;
+  }
+
+  /**
+   * The shared pool, created when the first search is started. Its threads
+   * are daemons so that a running search does not keep the application
+   * alive.
+   */
+  private static final class Workers {
+
+    static final int SIZE = Runtime.getRuntime().availableProcessors();
+
+    static final ExecutorService POOL = Executors.newFixedThreadPool(SIZE,
+        runnable -> {
+          Thread thread = new Thread(runnable, "schedule-optimiser");
+          thread.setDaemon(true);
+          return thread;
+        });
+  }
+}
@@ -0,0 +1,75 @@
+package application;
+
+/**
+ * The result of a MonteCarloSimulation of an OverallTask: the sorted finish
+ * times of every sample, in minutes from the start of the task, and the
+ * number of samples in which each SubTask was critical.
+ */
+public final class SimulationResult {
+
+  private final PlanTopology topology;
+  private final int[] finishTimes;
+  private final int[] criticalCount;
+
+  SimulationResult(PlanTopology topology, int[] sortedFinishTimes,
+                   int[] criticalCount) {
+    this.topology      = topology;
+    this.finishTimes   = sortedFinishTimes;
+    this.criticalCount = criticalCount;
+  }
+
+  public PlanTopology getTopology() {
+    return topology;
+  }
+
+  public int getSampleCount() {
+    return finishTimes.length;
+  }
+
+  /**
+   * @param percentile the percentile, between 0 and 100
+   * @return the finish time that the given percentage of the samples did
+   * not exceed, using the nearest rank
+   */
+  public int getPercentile(double percentile) {
+    if (percentile < 0 || percentile > 100) {
+      throw new IllegalArgumentException("Percentile must be between 0 and"
+          + " 100");
+    }
+    int rank = (int) Math.ceil(percentile / 100 * finishTimes.length);
+    return finishTimes[Math.max(0, rank - 1)];
+  }
+
+  public double getMeanFinishTime() {
+    long sum = 0;
+    for (int time : finishTimes) {
+      sum += time;
+    }
+    return (double) sum / finishTimes.length;
+  }
+
+  public int getMinFinishTime() {
+    return finishTimes[0];
+  }
+
+  public int getMaxFinishTime() {
+    return finishTimes[finishTimes.length - 1];
+  }
+
+  /**
+   * @return the fraction of the samples in which the subtask with the given
+   * index was on a critical path
+   */
+  public double getCriticalityIndex(int index) {
+    return (double) criticalCount[index] / finishTimes.length;
+  }
+
+  public double getCriticalityIndex(SubTask subTask) {
+    int index = topology.indexOf(subTask);
+    if (index < 0) {
+      throw new IllegalArgumentException(subTask.getTaskName()
+          + " is not part of this simulation");
+    }
+    return getCriticalityIndex(index);
+  }
+}
@@ -5,7 +5,15 @@ import java.util.*;
 public class SubTask extends Task {
 
   private final List<SubTask> dependencies;
-  private final List<Task> dependsOnMe;
+  private final List<SubTask> dependsOnMe;
+  private OverallTask owner;
+  private int topologicalOrder;
+  //optional three point estimate, the duration is the most likely one
+  private Duration optimisticDuration;
+  private Duration pessimisticDuration;
+  private int resourceDemand = 1;
+  //whether the dependencies have dropped this subtask from their dependsOnMe
+  private boolean unlinked;
 
   public SubTask(String name, Duration duration) {
     super(name, duration);
@@ -17,23 +25,232 @@ public class SubTask extends Task {
     return dependencies;
   }
 
-  public List<Task> getDependsOnMe() {
+  /**
+   * Returns the subtasks that have this subtask as a dependency. The list is
+   * kept consistent with the dependencies of those subtasks by
+   * addDependency and removeDependency.
+   */
+  public List<SubTask> getDependsOnMe() {
     return dependsOnMe;
   }
 
+  /**
+   * @return the number of hands the subtask needs while it is carried out,
+   * 1 unless set otherwise
+   */
+  public int getResourceDemand() {
+    return resourceDemand;
+  }
+
+  /**
+   * Sets the number of hands the subtask needs. A subtask that needs no
+   * hands, such as waiting for the washing machine, can overlap with any
+   * other subtask.
+   *
+   * @throws IllegalArgumentException if the demand is negative
+   */
+  public void setResourceDemand(int resourceDemand) {
+    if (resourceDemand < 0) {
+      throw new IllegalArgumentException("Resource demand of " + getTaskName()
+          + " cannot be negative");
+    }
+    this.resourceDemand = resourceDemand;
+    changed();
+  }
+
+  /**
+   * Sets a three point (PERT) estimate of the duration of this subtask. The
+   * most likely duration becomes the duration of the subtask.
+   *
+   * @throws IllegalArgumentException unless optimistic <= mostLikely <=
+   * pessimistic
+   */
+  public void setEstimate(Duration optimistic, Duration mostLikely,
+                          Duration pessimistic) {
+    if (optimistic.getTotalMinutes() > mostLikely.getTotalMinutes()
+        || mostLikely.getTotalMinutes() > pessimistic.getTotalMinutes()) {
+      throw new IllegalArgumentException("Estimate of " + getTaskName()
+          + " must satisfy optimistic <= most likely <= pessimistic");
+    }
+    this.optimisticDuration  = optimistic;
+    this.pessimisticDuration = pessimistic;
+    super.setDuration(mostLikely);
+    changed();
+  }
+
+  /**
+   * Restores a saved duration and estimate without checking them, since
+   * setDuration may have moved the duration outside the estimate.
+   *
+   * @param optimistic the optimistic duration, or null for no estimate
+   */
+  void restoreEstimate(Duration optimistic, Duration duration,
+                       Duration pessimistic) {
+    this.optimisticDuration  = optimistic;
+    this.pessimisticDuration = optimistic == null ? null : pessimistic;
+    super.setDuration(duration);
+    changed();
+  }
+
+  /**
+   * Removes the three point estimate, leaving the duration as it is.
+   */
+  public void clearEstimate() {
+    this.optimisticDuration  = null;
+    this.pessimisticDuration = null;
+    changed();
+  }
+
+  public boolean hasEstimate() {
+    return optimisticDuration != null;
+  }
+
+  /**
+   * @return the optimistic duration, or the duration if there is no estimate
+   */
+  public Duration getOptimisticDuration() {
+    return hasEstimate() ? optimisticDuration : getDuration();
+  }
+
+  /**
+   * @return the pessimistic duration, or the duration if there is no estimate
+   */
+  public Duration getPessimisticDuration() {
+    return hasEstimate() ? pessimisticDuration : getDuration();
+  }
+
+  /**
+   * Returns the OverallTask this subtask is part of, or null if it has not
+   * been added to one yet.
+   */
+  public OverallTask getOwner() {
+    return owner;
+  }
+
+  void setOwner(OverallTask owner) {
+    this.owner = owner;
+  }
+
+  /**
+   * Returns the position of this subtask in the topological order kept by
+   * its owner: it is lower than that of every subtask depending on it.
+   */
+  int getTopologicalOrder() {
+    return topologicalOrder;
+  }
+
+  void setTopologicalOrder(int topologicalOrder) {
+    this.topologicalOrder = topologicalOrder;
+  }
+
+  /**
+   * Adds a dependency to this subtask.
+   *
+   * @param dep the subtask that has to be completed before this one
+   * @throws IllegalArgumentException if dep already depends on this subtask,
+   * or dep, or a subtask it depends on, belongs to another task than this
+   * one; a subtask without a task is checked once it is added to one
+   */
   public void addDependency(SubTask dep) {
+    if (owner != null && dep.getOwner() != null && dep.getOwner() != owner) {
+      throw new IllegalArgumentException(dep.getTaskName()
+          + " belongs to another task");
+    }
+    if (owner != null && owner.wouldCreateCycle(this, dep)) {
+      throw new IllegalArgumentException(dep.getTaskName()
+          + " already depends on " + getTaskName());
+    }
+    if (owner != null) {
+      owner.register(dep);
+    }
     dependencies.add(dep);
+    dep.addDependsOnThis(this);
+    if (owner != null) {
+      owner.restoreOrder(this, dep);
+      owner.invalidateTaskGraph();
+      owner.dependencyAdded(this, dep);
+    }
   }
 
   public void removeDependency(SubTask dep) {
-    dependencies.remove(dep);
+    if (dependencies.remove(dep)) {
+      dep.removeDependsOnThis(this);
+      if (owner != null) {
+        owner.dependencyRemoved(this, dep);
+        owner.releaseIfUnreachable(dep);
+        owner.invalidateTaskGraph();
+      }
+    }
+  }
+
+  @Override
+  public void setName(String name) {
+    String oldName = getTaskName();
+    super.setName(name);
+    if (owner != null) {
+      owner.renameSubTask(this, oldName);
+    }
+    changed();
+  }
+
+  @Override
+  public void setDuration(Duration duration) {
+    super.setDuration(duration);
+    changed();
+  }
+
+  private void changed() {
+    if (owner != null) {
+      owner.subTaskChanged(this);
+    }
+  }
+
+  /**
+   * Removes this subtask from the dependencies of every subtask that depends
+   * on it. Runs in one pass over the dependsOnMe index, so the cost is
+   * proportional to the number of such subtasks rather than to the size of
+   * the plan.
+   */
+  void detachFromParents() {
+    for (SubTask parent : dependsOnMe) {
+      parent.dependencies.remove(this);
+    }
+    dependsOnMe.clear();
   }
 
-  public void addDependsOnThis(SubTask dep) {
+  /**
+   * Removes this subtask from the dependsOnMe index of its dependencies,
+   * keeping its own list of dependencies. Called when the subtask leaves its
+   * owner, so that subtasks still in the owner are not reached through it.
+   */
+  void unlinkFromDependencies() {
+    for (SubTask dep : dependencies) {
+      dep.dependsOnMe.remove(this);
+    }
+    unlinked = true;
+  }
+
+  /**
+   * Adds this subtask back to the dependsOnMe index of its dependencies, if
+   * it was unlinked from them. Called when the subtask joins an owner.
+   */
+  void linkToDependencies() {
+    if (!unlinked) {
+      return;
+    }
+    for (SubTask dep : dependencies) {
+      if (!dep.dependsOnMe.contains(this)) {
+        dep.dependsOnMe.add(this);
+      }
+    }
+    unlinked = false;
+  }
+
+  private void addDependsOnThis(SubTask dep) {
     dependsOnMe.add(dep);
   }
 
-  public void removeDependsOnThis(SubTask dep) {
+  private void removeDependsOnThis(SubTask dep) {
     dependsOnMe.remove(dep);
   }
 
@@ -47,26 +264,16 @@ public class SubTask extends Task {
   }
 
   /**
-   * Returns the subTask with equal task name as the taskName parameter. The method searches for the SubTask in
-   * the dependencies of the parent task. A precondition is that the subTask is present in the dependencies of the parent
-   * task given.
+   * Returns the subTask with equal task name as the taskName parameter. The SubTask is looked up in the name index
+   * of the parent task, see OverallTask.findSubTask. A precondition is that the subTask is present in the
+   * dependencies of the parent task given.
    * @param parent the task that contains the SubTask
    * @param taskName the string representing the task name of the subTask to return
    * @return the subTask associated to the taskToBeAdded parameter under parent.
    */
   public static SubTask findSubTaskInDependencies(OverallTask parent, String taskName) {
     //subtask is in dependencies as it has been selected in the tree view
-
-    Set<SubTask> visitedSubtasks = new HashSet<>();
-
-    for (SubTask t : parent.getAllSubTasks()) {
-      SubTask subTask = findRecursivelySubTask(t, taskName, visitedSubtasks);
-      if (subTask != null) {
-        return subTask;
-      }
-    }
-
-    return null;
+    return parent.findSubTask(taskName);
   }
 
   /**
@@ -104,32 +311,22 @@ public class SubTask extends Task {
 
 
 
+  /**
+   * Returns a subtask of the given task that has the subtask named subTaskName as a dependency. The parent is read
+   * from the dependsOnMe index of the subtask, so no search is needed.
+   * @param task the task that contains the subtask
+   * @param subTaskName the name of the subtask whose parent is returned
+   * @return a parent of the subtask, or null if it has none
+   */
   public static SubTask findParentOf(OverallTask task, String subTaskName) {
-
-
-    for (SubTask t : task.getAllSubTasks()) {
-      SubTask parent = findRecursiveParentSubtaskOf(t, subTaskName);
-      if (parent != null) {
-        return parent;
-      }
+    SubTask subTask = task.findSubTask(subTaskName);
+    if (subTask == null) {
+      return null;
     }
 
-    return null;
-
-  }
-
-
-  private static SubTask findRecursiveParentSubtaskOf(SubTask root, String taskName) {
-
-    for (SubTask t : root.getDependencies()) {
-      if (t.getTaskName().equals(taskName)) {
-        //then original subtask is the parent we are looking for
-        return root;
-      } else {
-        SubTask parent = findRecursiveParentSubtaskOf(t, taskName);
-        if (parent != null) {
-          return parent;
-        }
+    for (SubTask parent : subTask.getDependsOnMe()) {
+      if (parent.getOwner() == task) {
+        return parent;
       }
     }
 
@@ -1,9 +1,20 @@
 package application;
 
+/**
+ * A task with a name and a duration. Tasks are compared by identity: the
+ * name and duration can be edited, so they cannot be used to hash tasks.
+ * Every SubTask also carries an int ID, assigned by the OverallTask that owns
+ * it, which is dense within that OverallTask and stable while the subtask is
+ * part of it.
+ */
 public abstract class Task {
 
+  /** ID of a task that has not been given one by an OverallTask*/
+  public static final int NO_ID = -1;
+
   private String name;
   private Duration duration;
+  private int id = NO_ID;
 
   public Task(String name, Duration duration) {
     this.name = name;
@@ -18,6 +29,17 @@ public abstract class Task {
     return duration;
   }
 
+  /**
+   * @return the ID of the task within its owning OverallTask, or NO_ID
+   */
+  public int getId() {
+    return id;
+  }
+
+  void setId(int id) {
+    this.id = id;
+  }
+
   public void setName(String name) {
     this.name = name;
   }
@@ -30,27 +52,4 @@ public abstract class Task {
   public String toString() {
     return getTaskName() + ", " + getDuration();
   }
-
-  @Override
-  public boolean equals(Object o) {
-    if (this == o) {
-      return true;
-    }
-    if (o == null || getClass() != o.getClass()) {
-      return false;
-    }
-
-    Task task = (Task) o;
-
-    if (name != null ? !name.equals(task.name) : task.name != null)
-      return false;
-    return duration != null ? duration.equals(task.duration) : task.duration == null;
-  }
-
-  @Override
-  public int hashCode() {
-    int result = name != null ? name.hashCode() : 0;
-    result = 31 * result + (duration != null ? duration.hashCode() : 0);
-    return result;
-  }
 }
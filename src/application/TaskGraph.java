@@ -6,159 +6,294 @@ import java.util.stream.Stream;
 
 public class TaskGraph {
 
+  /** Stored completion time of a node whose time has not been computed*/
+  private static final int NO_TIME = Integer.MIN_VALUE;
+
+  private final OverallTask owner;
   private TaskGraphNode start;
   private TaskGraphNode end;
 
+  //nodes and their per-node data, indexed by node ID
+  private final List<TaskGraphNode> nodes = new ArrayList<>();
+  private int[] earliestCompletionTime = new int[16];
+  private int[] latestCompletionTime = new int[16];
+  //compiled form of the graph, kept until the graph changes
+  private CompiledTaskGraph compiled;
+
   public TaskGraph() {
-    this.start = new TaskGraphNode();
-    this.end   = new TaskGraphNode();
+    this(null);
   }
 
-  public TaskGraphArc findArc(Task task) {
-    return recursiveFind(task, start);
+  /**
+   * @param owner the task whose subtasks the arcs of the graph hold
+   */
+  public TaskGraph(OverallTask owner) {
+    this.owner = owner;
+    this.start = newNode();
+    this.end   = newNode();
   }
 
-  private TaskGraphArc recursiveFind(Task task, TaskGraphNode currentNode) {
-    for (TaskGraphArc i : currentNode.getOutgoingArcs()) {
-      if (i.getTask().equals(task)) {
-        return i;
-      }
-      TaskGraphArc thisPath = recursiveFind(task, i.getChild());
-      if (thisPath != null) {
-        return thisPath;
-      }
-    }
-    return null;
+  /**
+   * @return the task the graph was generated from, or null if it was built
+   * by hand
+   */
+  public OverallTask getOwner() {
+    return owner;
   }
 
   /**
-   * It proceeds forward and recursively sets the degree of each
-   * node to be the number of its incoming edges.
+   * Creates a node of this graph. Node IDs are scoped to the graph and dense,
+   * the n-th node created gets ID n - 1, so graphs can be generated
+   * concurrently and per-node data can be kept in arrays.
    *
-   * @param node initially should be the TaskGraph's start node
+   * @return the new node
    */
-  private void setIncomingDegree(TaskGraphNode node) {
-    //post: It sets the degree of each node to be equal to the number of
-    // incoming edges of that node.
-
-    //set current node degree to number of incoming arcs
-    node.setDegree(node.getIncomingArcs().size());
-    //recursively set the degree going forward
-    node.getOutgoingArcs().forEach(i -> setIncomingDegree(i.getChild()));
+  public TaskGraphNode newNode() {
+    int id = nodes.size();
+    if (id == earliestCompletionTime.length) {
+      int capacity = id * 2;
+      earliestCompletionTime = Arrays.copyOf(earliestCompletionTime, capacity);
+      latestCompletionTime = Arrays.copyOf(latestCompletionTime, capacity);
+    }
+    earliestCompletionTime[id] = NO_TIME;
+    latestCompletionTime[id] = NO_TIME;
+    TaskGraphNode node = new TaskGraphNode(this, id);
+    nodes.add(node);
+    return node;
   }
 
   /**
-   * This topologicalSort is an implementation of Kahn's Algorithm. It returns
-   * a queue of TaskGraphNodes whose FIFO ordering reflects the
-   * order in which the earliest completion time for the nodes has to be
-   * computed.
+   * @return the number of nodes created in this graph
    */
-  //PRE: Graph is acyclic
-  private TopologicalSorts topologicalSort() {
-    //post: It returns a queue of TaskGraphNode objects such that a node
-    // added in the queue before another node indicates that there is a path
-    // from the former node to the latter node in the task graph.
-
-    //initialise degree of each TaskGraphNode
-    setIncomingDegree(start);
-
-    //Queue to store all nodes with no incoming edge (zero degree)
-    Queue<TaskGraphNode> temp = new ArrayDeque<>();
-    //Empty Queue storing sorted elements
-    Queue<TaskGraphNode> resultQueue = new ArrayDeque<>();
-    //Empty Stack storing sorted elements in transpose order
-    Stack<TaskGraphNode> resultStack = new Stack<>();
-
-    //all nodes with zero degree placed in temp (only start node initially)
-    temp.add(start);
-    while (!temp.isEmpty()) {
-      TaskGraphNode dequeued = temp.remove();
-      resultQueue.add(dequeued);
-      resultStack.push(dequeued);
-      dequeued.getOutgoingArcs().forEach(i -> {
-        //decrement degree of each child by 1
-        TaskGraphNode childNode = i.getChild();
-        childNode.setDegree(childNode.getDegree() - 1);
-        //if updated degree reaches zero, place in temp
-        if (childNode.getDegree() == 0) {temp.add(childNode);}
-      });
-    }
+  public int getNodeCount() {
+    return nodes.size();
+  }
+
+  public TaskGraphNode getNode(int nodeID) {
+    return nodes.get(nodeID);
+  }
+
+  /**
+   * @return the earliest completion time of the node in minutes, or
+   * Integer.MIN_VALUE if it has not been computed
+   */
+  public int getEarliestCompletionMinutes(int nodeID) {
+    return earliestCompletionTime[nodeID];
+  }
 
-    return new TopologicalSorts(resultQueue, resultStack);
+  /**
+   * @return the latest completion time of the node in minutes, or
+   * Integer.MIN_VALUE if it has not been computed
+   */
+  public int getLatestCompletionMinutes(int nodeID) {
+    return latestCompletionTime[nodeID];
+  }
+
+  void setCompletionMinutes(int nodeID, int earliest, int latest) {
+    earliestCompletionTime[nodeID] = earliest;
+    latestCompletionTime[nodeID] = latest;
+  }
+
+  Time getEarliestCompletionTime(int nodeID) {
+    return toTime(earliestCompletionTime[nodeID]);
+  }
+
+  Time getLatestCompletionTime(int nodeID) {
+    return toTime(latestCompletionTime[nodeID]);
+  }
+
+  void setEarliestCompletionTime(int nodeID, Time time) {
+    earliestCompletionTime[nodeID] = toMinutes(time);
+  }
+
+  void setLatestCompletionTime(int nodeID, Time time) {
+    latestCompletionTime[nodeID] = toMinutes(time);
+  }
+
+  private static Time toTime(int minutes) {
+    return minutes == NO_TIME ? null : Time.fromMinutes(minutes);
+  }
+
+  private static int toMinutes(Time time) {
+    return time == null ? NO_TIME : Time.toMinutes(time);
+  }
+
+  /**
+   * Returns the arc holding the given task. The search is an iterative depth
+   * first search that expands every node at most once, so it runs in
+   * O(V + E) regardless of how many paths lead to a node.
+   *
+   * @param task the task to look for
+   * @return the arc holding the task, or null if no arc holds it
+   */
+  public TaskGraphArc findArc(Task task) {
+    BitSet visited = new BitSet();
+    Deque<TaskGraphNode> toVisit = new ArrayDeque<>();
+    visited.set(start.getNodeID());
+    toVisit.push(start);
+
+    while (!toVisit.isEmpty()) {
+      TaskGraphNode node = toVisit.pop();
+      for (TaskGraphArc i : node.getOutgoingArcs()) {
+        if (task.equals(i.getTask())) {
+          return i;
+        }
+        pushIfNotVisited(i.getChild(), visited, toVisit);
+      }
+    }
+    return null;
   }
 
   /**
-   * It computes the earliest completion time for each node in the order given
-   * by the FIFO queue generated by the topological sort.
+   * Returns whether there is a path from the node from to the node to.
+   * Iterative, and each node is expanded at most once.
    */
-  private void computeEarliestCompletionTime(Queue<TaskGraphNode>
-                                                 sortedNodes) {
-    //TODO Naman:
-    //post: Sets the earliest completion time for the start node to be zero. Sets the
-    //      earliest completion time for each node, different from the start node, to be the
-    //      maximum of the sum of the earliest completion time for its precedent node and the
-    //      duration of the connecting edge, over all its precedent nodes.
-    TaskGraphNode start = sortedNodes.poll();
-    start.setEarliestCompletionTime(new Time(0,0));
-
-    while (!sortedNodes.isEmpty())  {
-      TaskGraphNode node = sortedNodes.poll();
-      List<Time> times = node.getIncomingArcs().stream()
-              .map(i -> i.getParent().getEarliestCompletionTime().addDuration(i.getTask().getDuration()))
-              .collect(Collectors.toList());
-
-      Time maxTime = Collections.max(times);
-
-      node.setEarliestCompletionTime(maxTime);
+  public boolean isReachable(TaskGraphNode from, TaskGraphNode to) {
+    if (from == to) {
+      return true;
+    }
+    BitSet visited = new BitSet();
+    Deque<TaskGraphNode> toVisit = new ArrayDeque<>();
+    visited.set(from.getNodeID());
+    toVisit.push(from);
+
+    while (!toVisit.isEmpty()) {
+      TaskGraphNode node = toVisit.pop();
+      for (TaskGraphArc i : node.getOutgoingArcs()) {
+        if (i.getChild() == to) {
+          return true;
+        }
+        pushIfNotVisited(i.getChild(), visited, toVisit);
+      }
     }
+    return false;
   }
 
   /**
-   * It computes the latest completion time for each node
+   * Returns every node reachable from the given node, including itself, in
+   * depth first order. Iterative, and each node is expanded at most once.
    */
-  private void computeLatestCompletionTime(Stack<TaskGraphNode>
-                                               sortedNodes) {
-    //TODO Naman:
-    //post: Sets the latest completion time for each node.
-    TaskGraphNode end = sortedNodes.pop();
-    end.setLatestCompletionTime(end.getEarliestCompletionTime());
-
-    while (!sortedNodes.isEmpty()) {
-      TaskGraphNode node = sortedNodes.pop();
-      List<Time> times = node.getOutgoingArcs().stream()
-              .map(i -> i.getChild().getLatestCompletionTime().subDuration(i.getTask().getDuration()))
-              .collect(Collectors.toList());
-
-      Time minTime = Collections.min(times);
-
-      node.setLatestCompletionTime(minTime);
+  public List<TaskGraphNode> getReachableNodes(TaskGraphNode from) {
+    List<TaskGraphNode> reachable = new ArrayList<>();
+    BitSet visited = new BitSet();
+    Deque<TaskGraphNode> toVisit = new ArrayDeque<>();
+    visited.set(from.getNodeID());
+    toVisit.push(from);
+
+    while (!toVisit.isEmpty()) {
+      TaskGraphNode node = toVisit.pop();
+      reachable.add(node);
+      for (TaskGraphArc i : node.getOutgoingArcs()) {
+        pushIfNotVisited(i.getChild(), visited, toVisit);
+      }
     }
+    return reachable;
   }
 
-  public TaskGraphNode getStartNode() {
-    return start;
+  private static void pushIfNotVisited(TaskGraphNode node, BitSet visited,
+                                       Deque<TaskGraphNode> toVisit) {
+    //arcs still being built may not have a child yet
+    if (node != null && !visited.get(node.getNodeID())) {
+      visited.set(node.getNodeID());
+      toVisit.push(node);
+    }
   }
 
-  public TaskGraphNode getEndNode() {
-    return end;
+  /**
+   * Compiles the graph into its array-backed form, see CompiledTaskGraph.
+   */
+  public CompiledTaskGraph compile() {
+    return CompiledTaskGraph.compile(start);
   }
 
-  private class TopologicalSorts {
-    private Queue<TaskGraphNode> graphTopologicalOrder;
-    private Stack<TaskGraphNode> transposeGraphTopologicalOrder;
+  /**
+   * Discards the compiled form of the graph. Called whenever a node or arc
+   * of the graph is changed through its methods; changes made directly to
+   * the arc sets of a node must be followed by a call to this.
+   */
+  void structureChanged() {
+    compiled = null;
+  }
 
-    public TopologicalSorts(Queue<TaskGraphNode> graphTopologicalOrder, Stack<TaskGraphNode> transposeGraphTopologicalOrder) {
-      this.graphTopologicalOrder = graphTopologicalOrder;
-      this.transposeGraphTopologicalOrder = transposeGraphTopologicalOrder;
+  /**
+   * It computes the earliest and latest completion time for each node, and
+   * stores them in the nodes. The computation is done on the compiled form
+   * of the graph, which is kept until the graph changes, so that running
+   * the analysis again only rereads the durations and does not allocate.
+   *
+   * @return the compiled graph holding the computed times, in minutes. It is
+   * reused, and overwritten, by the next call
+   */
+  public CompiledTaskGraph computeCompletionTimes() {
+    if (compiled == null) {
+      compiled = compile();
+    } else {
+      compiled.refreshDurations();
     }
+    CompiledTaskGraph compiled = this.compiled;
+    compiled.forwardPass();
+    compiled.backwardPass();
+    compiled.writeBack();
+    return compiled;
+  }
 
-    public Queue<TaskGraphNode> getGraphTopologicalOrder() {
-      return graphTopologicalOrder;
+  /**
+   * Computes the completion times of every node, as computeCompletionTimes
+   * does, and collects them into the schedule of the owner's subtasks. The
+   * earliest start of a subtask is the earliest completion time of the node
+   * its arc leaves, and its latest finish the latest completion time of the
+   * node its arc enters.
+   *
+   * @return the times, floats and critical path of the owner's subtasks
+   * @throws IllegalStateException if the graph has no owner
+   */
+  public Schedule computeSchedule() {
+    if (owner == null) {
+      throw new IllegalStateException("Task graph was not generated from a"
+          + " task");
+    }
+    CompiledTaskGraph compiled = computeCompletionTimes();
+    PlanTopology topology = PlanTopology.of(owner);
+    int n = topology.size();
+    int[] duration = topology.getDurations();
+    int[] earliestStart = new int[n];
+    int[] latestStart = new int[n];
+    int[] freeFloat = new int[n];
+    int finish = compiled.getProjectDuration();
+
+    for (int node = 0; node < compiled.getNodeCount(); node++) {
+      for (int a = compiled.getFirstArc(node); a < compiled.getEndArc(node);
+           a++) {
+        Task task = compiled.getArcTask(a);
+        if (task instanceof SubTask) {
+          int t = topology.indexOf((SubTask) task);
+          earliestStart[t] = compiled.getEarliestCompletionTime(node);
+          latestStart[t] = compiled.getLatestCompletionTime(
+              compiled.getArcTarget(a)) - duration[t];
+        }
+      }
     }
 
-    public Stack<TaskGraphNode> getTransposeGraphTopologicalOrder() {
-      return transposeGraphTopologicalOrder;
+    //free float is measured to the earliest start of the next subtask, which
+    //may lie past dummy arcs
+    for (int t = 0; t < n; t++) {
+      int nextStart = finish;
+      for (int a = topology.getFirstSucc(t); a < topology.getEndSucc(t); a++) {
+        nextStart = Math.min(nextStart, earliestStart[topology.getSucc(a)]);
+      }
+      freeFloat[t] = nextStart - earliestStart[t] - duration[t];
     }
+
+    return new Schedule(topology, duration, earliestStart, latestStart,
+        freeFloat, finish);
+  }
+
+  public TaskGraphNode getStartNode() {
+    return start;
+  }
+
+  public TaskGraphNode getEndNode() {
+    return end;
   }
 
   public static void main(String[] args) {
@@ -166,20 +301,20 @@ public class TaskGraph {
     TaskGraph graph = new TaskGraph();
 
     //nodes for test
-    TaskGraphNode e1 = new TaskGraphNode();
-    TaskGraphNode e2 = new TaskGraphNode();
-    TaskGraphNode e3 = new TaskGraphNode();
-    TaskGraphNode e4 = new TaskGraphNode();
-    TaskGraphNode e5 = new TaskGraphNode();
-    TaskGraphNode e6 = new TaskGraphNode();
-    TaskGraphNode e7 = new TaskGraphNode();
-    TaskGraphNode e8 = new TaskGraphNode();
-    TaskGraphNode e9 = new TaskGraphNode();
-    TaskGraphNode e10 = new TaskGraphNode();
-    TaskGraphNode e6d = new TaskGraphNode();
-    TaskGraphNode e7d = new TaskGraphNode();
-    TaskGraphNode e8d = new TaskGraphNode();
-    TaskGraphNode e10d = new TaskGraphNode();
+    TaskGraphNode e1 = graph.newNode();
+    TaskGraphNode e2 = graph.newNode();
+    TaskGraphNode e3 = graph.newNode();
+    TaskGraphNode e4 = graph.newNode();
+    TaskGraphNode e5 = graph.newNode();
+    TaskGraphNode e6 = graph.newNode();
+    TaskGraphNode e7 = graph.newNode();
+    TaskGraphNode e8 = graph.newNode();
+    TaskGraphNode e9 = graph.newNode();
+    TaskGraphNode e10 = graph.newNode();
+    TaskGraphNode e6d = graph.newNode();
+    TaskGraphNode e7d = graph.newNode();
+    TaskGraphNode e8d = graph.newNode();
+    TaskGraphNode e10d = graph.newNode();
 
     //arcs for test
     TaskGraphArc a = new TaskGraphArc(new SubTask("A", new Duration(3, 0)),
@@ -272,22 +407,27 @@ public class TaskGraph {
 
     graph.start = e1;
     graph.end = e10;
+
+    //expected: 10:00 for both
+    graph.computeCompletionTimes();
+    System.out.println(e10.getEarliestCompletionTime());
+    System.out.println(e10.getLatestCompletionTime());
   }
 
   //Test Cases for computing earliest and latest times
   private void completionTimeTests() {
-    TaskGraphNode start = new TaskGraphNode();
-    TaskGraphNode A  = new TaskGraphNode();
-    TaskGraphNode B  = new TaskGraphNode();
-    TaskGraphNode C  = new TaskGraphNode();
-    TaskGraphNode D  = new TaskGraphNode();
-    TaskGraphNode E  = new TaskGraphNode();
-    TaskGraphNode F  = new TaskGraphNode();
-    TaskGraphNode G  = new TaskGraphNode();
-    TaskGraphNode H  = new TaskGraphNode();
-    TaskGraphNode I  = new TaskGraphNode();
-    TaskGraphNode J  = new TaskGraphNode();
-    TaskGraphNode end  = new TaskGraphNode();
+    TaskGraphNode start = newNode();
+    TaskGraphNode A = newNode();
+    TaskGraphNode B = newNode();
+    TaskGraphNode C = newNode();
+    TaskGraphNode D = newNode();
+    TaskGraphNode E = newNode();
+    TaskGraphNode F = newNode();
+    TaskGraphNode G = newNode();
+    TaskGraphNode H = newNode();
+    TaskGraphNode I = newNode();
+    TaskGraphNode J = newNode();
+    TaskGraphNode end = newNode();
 
     TaskGraphArc StartToA = new TaskGraphArc(new SubTask(null, new Duration(0, 0)), start, A);
     TaskGraphArc StartToB = new TaskGraphArc(new SubTask(null, new Duration(0, 0)), start, B);
@@ -22,9 +22,16 @@ public class TaskGraphArc {
     this.isDummy = true;
   }
 
+  /**
+   * Creates a dummy arc between the two nodes and adds it to the outgoing
+   * arcs of the parent.
+   */
   public static TaskGraphArc newDummy(TaskGraphNode parent, TaskGraphNode
       child) {
-    return new TaskGraphArc(parent, child);
+    TaskGraphArc dummy = new TaskGraphArc(parent, child);
+    parent.getOutgoingArcs().add(dummy);
+    parent.getGraph().structureChanged();
+    return dummy;
   }
 
   public boolean isDummy() {
@@ -45,9 +52,15 @@ public class TaskGraphArc {
 
   public void setParent(TaskGraphNode parent) {
     this.parent = parent;
+    if (parent != null) {
+      parent.getGraph().structureChanged();
+    }
   }
 
   public void setChild(TaskGraphNode child) {
     this.child = child;
+    if (child != null) {
+      child.getGraph().structureChanged();
+    }
   }
 }
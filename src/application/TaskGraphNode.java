@@ -3,52 +3,52 @@ package application;
 import java.util.HashSet;
 import java.util.Set;
 
+/**
+ * An event node of a TaskGraph. Nodes are created by their graph, which gives
+ * them a dense ID in 0..n-1 and stores their per-node data (earliest and
+ * latest completion times) in flat arrays indexed by that ID.
+ */
 public class TaskGraphNode {
 
-  private Time earliestCompletionTime;
-  private Time latestCompletionTime;
+  private final TaskGraph graph;
+  private final int nodeID;
   private Set<TaskGraphArc> incoming;
   private Set<TaskGraphArc> outgoing;
-  private int nodeID;
-  private static int count = 0;
-  private int degree;
 
-  public TaskGraphNode() {
-    nodeID = count++;
+  TaskGraphNode(TaskGraph graph, int nodeID) {
+    this.graph    = graph;
+    this.nodeID   = nodeID;
     this.incoming = new HashSet<>();
     this.outgoing = new HashSet<>();
   }
 
-  public int getNodeID() {
-    return nodeID;
-  }
-
-  public int getDegree() {
-    return degree;
+  public TaskGraph getGraph() {
+    return graph;
   }
 
-  public void setDegree(int degree) {
-    this.degree = degree;
+  public int getNodeID() {
+    return nodeID;
   }
 
   public Time getEarliestCompletionTime() {
-    return earliestCompletionTime;
+    return graph.getEarliestCompletionTime(nodeID);
   }
 
   public Time getLatestCompletionTime() {
-    return latestCompletionTime;
+    return graph.getLatestCompletionTime(nodeID);
   }
 
   public void setEarliestCompletionTime(Time earliestCompletionTime) {
-    this.earliestCompletionTime = earliestCompletionTime;
+    graph.setEarliestCompletionTime(nodeID, earliestCompletionTime);
   }
 
   public void setLatestCompletionTime(Time latestCompletionTime) {
-    this.latestCompletionTime = latestCompletionTime;
+    graph.setLatestCompletionTime(nodeID, latestCompletionTime);
   }
 
   public Duration getFloat() {
-    return earliestCompletionTime.getTimeDifference(latestCompletionTime);
+    return Duration.ofMinutes(graph.getLatestCompletionMinutes(nodeID)
+        - graph.getEarliestCompletionMinutes(nodeID));
   }
 
   public Set<TaskGraphArc> getIncomingArcs() {
@@ -59,19 +59,36 @@ public class TaskGraphNode {
     return outgoing;
   }
 
-  public void addOutgoingArc(Task task) {
-    outgoing.add(new TaskGraphArc(task, this, new TaskGraphNode()));
+  /**
+   * Adds an arc holding the task that leaves this node and does not enter
+   * any node yet; its child is to be set once it is known.
+   */
+  public TaskGraphArc addOutgoingArc(Task task) {
+    return addOutgoingArc(task, null);
+  }
+
+  /**
+   * Adds an arc holding the task from this node to the given child.
+   */
+  public TaskGraphArc addOutgoingArc(Task task, TaskGraphNode child) {
+    TaskGraphArc arc = new TaskGraphArc(task, this, child);
+    outgoing.add(arc);
+    graph.structureChanged();
+    return arc;
   }
 
   public void addIncomingArc(Task task, TaskGraphNode parent) {
-    incoming.add(new TaskGraphArc(task, parent, new TaskGraphNode()));
+    incoming.add(new TaskGraphArc(task, parent, this));
+    graph.structureChanged();
   }
 
   public void setIncoming(Set<TaskGraphArc> incoming) {
     this.incoming = incoming;
+    graph.structureChanged();
   }
 
   public void setOutgoing(Set<TaskGraphArc> outgoing) {
     this.outgoing = outgoing;
+    graph.structureChanged();
   }
 }
@@ -0,0 +1,776 @@
+package application;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Reads subtasks into an OverallTask from CSV or JSON Lines. Every row has
+ * the name and duration of a subtask and the names of the subtasks it
+ * depends on:
+ *
+ * CSV         name,duration,dependencies as in RFC 4180, with the
+ *             dependencies separated by semicolons; further columns are read
+ *             as more dependencies. A first row without a valid duration is
+ *             taken to be a header.
+ * JSON Lines  one object per line, such as {"name": "Toast", "duration": 5,
+ *             "dependencies": ["Bread"]}; other keys are ignored.
+ *
+ * Durations are minutes or hours:minutes. A row may depend on rows after it
+ * and on subtasks the task already has.
+ *
+ * The input is tokenised in a single pass through a fixed buffer, so only
+ * what the rows define is kept while reading: the names, the durations and
+ * the dependencies as pairs of indices. The subtasks are created once the
+ * input ends and every name is known. Problems do not abort the import but
+ * are listed in the ImportReport: malformed rows and rows repeating a name
+ * are skipped, and so are dependencies on unknown names and dependencies
+ * that would close a cycle.
+ */
+public final class TaskImporter {
+
+  public enum Format {
+    CSV, JSON_LINES;
+
+    /**
+     * @return JSON_LINES for a file ending in .jsonl or .json, CSV otherwise
+     */
+    public static Format of(String fileName) {
+      String name = fileName.toLowerCase(Locale.ROOT);
+      return name.endsWith(".jsonl") || name.endsWith(".json") ? JSON_LINES
+          : CSV;
+    }
+  }
+
+  private static final int BUFFER_SIZE = 1 << 16;
+  private static final int END = -1;
+  /** Duration of a name no row has defined yet, or of an invalid duration*/
+  private static final int UNDEFINED = -1;
+
+  private static final byte[] NAME = bytes("name");
+  private static final byte[] DURATION = bytes("duration");
+  private static final byte[] DEPENDENCIES = bytes("dependencies");
+
+  private final InputStream in;
+  private final byte[] buffer = new byte[BUFFER_SIZE];
+  private int position;
+  private int limit;
+  private int line = 1;
+  //the character read last, to find the end of a malformed row
+  private int last;
+  private final ByteBuilder token = new ByteBuilder(64);
+  private final ImportReport report = new ImportReport();
+
+  //every name read, defined by a row or only depended on, by index
+  private final Map<String, Integer> indices = new HashMap<>();
+  private String[] names = new String[1024];
+  private int[] durations = new int[1024];
+  //the line of the row defining the name
+  private int[] lines = new int[1024];
+  private int nameCount;
+  //dependencies, as the indices of the dependant and the dependency
+  private int[] dependants = new int[1024];
+  private int[] dependencies = new int[1024];
+  private int dependencyCount;
+
+  //the row being read
+  private int rowLine;
+  private String rowName;
+  private int rowDuration;
+  private String rowError;
+  private final List<String> rowDependencies = new ArrayList<>();
+
+  private TaskImporter(InputStream in) {
+    this.in = in;
+  }
+
+  /**
+   * Reads all rows of the input and adds the subtasks they define to the
+   * task. Subtasks no other imported subtask depends on become top level
+   * subtasks of the task.
+   *
+   * @param in the input, encoded in UTF-8; it is not closed
+   * @param format the format of the input
+   * @param task the task to add the subtasks to
+   * @return what was imported, and the problems skipped over
+   * @throws IOException if the input cannot be read
+   */
+  public static ImportReport importTasks(InputStream in, Format format,
+                                         OverallTask task) throws IOException {
+    TaskImporter importer = new TaskImporter(in);
+    importer.skipByteOrderMark();
+    if (format == Format.CSV) {
+      importer.readCsv();
+    } else {
+      importer.readJsonLines();
+    }
+    importer.build(task);
+    return importer.report;
+  }
+
+  /**
+   * Skips the UTF-8 byte order mark some editors, like Excel, start the
+   * input with.
+   */
+  private void skipByteOrderMark() throws IOException {
+    while (limit < 3) {
+      int count = in.read(buffer, limit, buffer.length - limit);
+      if (count < 0) {
+        break;
+      }
+      limit += count;
+    }
+    if (limit >= 3 && buffer[0] == (byte) 0xEF && buffer[1] == (byte) 0xBB
+        && buffer[2] == (byte) 0xBF) {
+      position = 3;
+    }
+  }
+
+  private int peek() throws IOException {
+    if (position == limit) {
+      limit = Math.max(0, in.read(buffer, 0, buffer.length));
+      position = 0;
+      if (limit == 0) {
+        return END;
+      }
+    }
+    return buffer[position] & 0xFF;
+  }
+
+  private int read() throws IOException {
+    int c = peek();
+    last = c;
+    if (c != END) {
+      position++;
+      if (c == '\n') {
+        line++;
+      }
+    }
+    return c;
+  }
+
+  private void startRow() {
+    rowLine = line;
+    rowName = null;
+    rowDuration = UNDEFINED;
+    rowError = null;
+    rowDependencies.clear();
+  }
+
+  /**
+   * Defines the name of the row, or reports why it cannot be.
+   */
+  private void endRow() {
+    report.rowRead();
+    if (rowError == null && (rowName == null || rowName.isEmpty())) {
+      rowError = "no name";
+    }
+    if (rowError == null && rowDuration == UNDEFINED) {
+      rowError = "no valid duration for " + rowName;
+    }
+    if (rowError == null) {
+      int index = index(rowName);
+      if (durations[index] != UNDEFINED) {
+        rowError = rowName + " was already defined on line " + lines[index];
+      } else {
+        durations[index] = rowDuration;
+        lines[index] = rowLine;
+        for (String dependency : rowDependencies) {
+          addDependency(index, index(dependency));
+        }
+      }
+    }
+    if (rowError != null) {
+      report.rowError(rowLine, rowError);
+    }
+  }
+
+  private int index(String name) {
+    Integer index = indices.get(name);
+    if (index != null) {
+      return index;
+    }
+    if (nameCount == names.length) {
+      names = Arrays.copyOf(names, nameCount * 2);
+      durations = Arrays.copyOf(durations, nameCount * 2);
+      lines = Arrays.copyOf(lines, nameCount * 2);
+    }
+    names[nameCount] = name;
+    durations[nameCount] = UNDEFINED;
+    indices.put(name, nameCount);
+    return nameCount++;
+  }
+
+  private void addDependency(int dependant, int dependency) {
+    if (dependencyCount == dependants.length) {
+      dependants = Arrays.copyOf(dependants, dependencyCount * 2);
+      dependencies = Arrays.copyOf(dependencies, dependencyCount * 2);
+    }
+    dependants[dependencyCount] = dependant;
+    dependencies[dependencyCount++] = dependency;
+  }
+
+  private void readCsv() throws IOException {
+    boolean first = true;
+    while (peek() != END) {
+      startRow();
+      int column = 0;
+      int terminator;
+      do {
+        terminator = readCsvField();
+        if (column == 0) {
+          rowName = string(0, token.size());
+        } else if (column == 1) {
+          rowDuration = parseDuration(0, token.size());
+        } else {
+          splitDependencies();
+        }
+        column++;
+      } while (terminator == ',');
+
+      if (column == 1 && rowName.isEmpty()) {
+        //a blank line
+        continue;
+      }
+      if (first && rowDuration == UNDEFINED) {
+        //a header
+        first = false;
+        continue;
+      }
+      first = false;
+      endRow();
+    }
+  }
+
+  /**
+   * Reads a field into the token, unquoting it.
+   *
+   * @return the character that ended it: a comma, a newline or END
+   */
+  private int readCsvField() throws IOException {
+    token.clear();
+    int c = read();
+    if (c == '"') {
+      while (true) {
+        c = read();
+        if (c == END) {
+          rowError = "unterminated quotes";
+          return END;
+        }
+        if (c == '"') {
+          if (peek() != '"') {
+            break;
+          }
+          read();
+        }
+        token.writeByte(c);
+      }
+      c = read();
+    }
+    //the rest of the field, also after closing quotes
+    while (c != ',' && c != '\n' && c != END) {
+      if (c == '\r' && (peek() == '\n' || peek() == END)) {
+        c = read();
+        break;
+      }
+      token.writeByte(c);
+      c = read();
+    }
+    return c;
+  }
+
+  /**
+   * Adds the names in the token, separated by semicolons, to the
+   * dependencies of the row.
+   */
+  private void splitDependencies() {
+    byte[] bytes = token.array();
+    int from = 0;
+    for (int i = 0; i <= token.size(); i++) {
+      if (i == token.size() || bytes[i] == ';') {
+        String name = string(from, i);
+        if (!name.isEmpty()) {
+          rowDependencies.add(name);
+        }
+        from = i + 1;
+      }
+    }
+  }
+
+  private void readJsonLines() throws IOException {
+    while (true) {
+      int c = peek();
+      while (c == ' ' || c == '\t' || c == '\r' || c == '\n') {
+        read();
+        c = peek();
+      }
+      if (c == END) {
+        return;
+      }
+      startRow();
+      try {
+        readJsonObject();
+      } catch (MalformedInput e) {
+        rowError = "malformed JSON";
+        //the rest of the line belongs to the malformed row
+        c = last;
+        while (c != '\n' && c != END) {
+          c = read();
+        }
+      }
+      endRow();
+    }
+  }
+
+  private void readJsonObject() throws IOException, MalformedInput {
+    expect('{');
+    skipJsonWhitespace();
+    if (peek() == '}') {
+      read();
+    } else {
+      int c;
+      do {
+        skipJsonWhitespace();
+        readJsonString();
+        boolean name = tokenEquals(NAME);
+        boolean duration = tokenEquals(DURATION);
+        boolean dependencies = tokenEquals(DEPENDENCIES);
+        skipJsonWhitespace();
+        expect(':');
+        skipJsonWhitespace();
+        if (name && peek() == '"') {
+          readJsonString();
+          rowName = string(0, token.size());
+        } else if (duration) {
+          if (peek() == '"') {
+            readJsonString();
+          } else {
+            readJsonLiteral();
+          }
+          rowDuration = parseDuration(0, token.size());
+        } else if (dependencies && peek() == '[') {
+          readJsonNames();
+        } else {
+          skipJsonValue();
+        }
+        skipJsonWhitespace();
+        c = read();
+      } while (c == ',');
+      if (c != '}') {
+        throw MalformedInput.INSTANCE;
+      }
+    }
+    //one object per line
+    int c = read();
+    while (c == ' ' || c == '\t' || c == '\r') {
+      c = read();
+    }
+    if (c != '\n' && c != END) {
+      throw MalformedInput.INSTANCE;
+    }
+  }
+
+  private void readJsonNames() throws IOException, MalformedInput {
+    expect('[');
+    skipJsonWhitespace();
+    if (peek() == ']') {
+      read();
+      return;
+    }
+    int c;
+    do {
+      skipJsonWhitespace();
+      readJsonString();
+      String name = string(0, token.size());
+      if (!name.isEmpty()) {
+        rowDependencies.add(name);
+      }
+      skipJsonWhitespace();
+      c = read();
+    } while (c == ',');
+    if (c != ']') {
+      throw MalformedInput.INSTANCE;
+    }
+  }
+
+  /**
+   * Reads a string into the token, as UTF-8.
+   */
+  private void readJsonString() throws IOException, MalformedInput {
+    expect('"');
+    token.clear();
+    while (true) {
+      int c = read();
+      if (c == END || c == '\n') {
+        throw MalformedInput.INSTANCE;
+      }
+      if (c == '"') {
+        return;
+      }
+      if (c != '\\') {
+        token.writeByte(c);
+        continue;
+      }
+      c = read();
+      switch (c) {
+        case '"': case '\\': case '/':
+          token.writeByte(c);
+          break;
+        case 'b':
+          token.writeByte('\b');
+          break;
+        case 'f':
+          token.writeByte('\f');
+          break;
+        case 'n':
+          token.writeByte('\n');
+          break;
+        case 'r':
+          token.writeByte('\r');
+          break;
+        case 't':
+          token.writeByte('\t');
+          break;
+        case 'u':
+          writeUtf8(readJsonCodePoint());
+          break;
+        default:
+          throw MalformedInput.INSTANCE;
+      }
+    }
+  }
+
+  /**
+   * Reads the four hex digits after \\u, and the low surrogate escaped
+   * after them if they are a high surrogate.
+   */
+  private int readJsonCodePoint() throws IOException, MalformedInput {
+    char high = (char) readHex();
+    if (!Character.isHighSurrogate(high) || peek() != '\\') {
+      return Character.isSurrogate(high) ? 0xFFFD : high;
+    }
+    read();
+    if (read() != 'u') {
+      throw MalformedInput.INSTANCE;
+    }
+    char low = (char) readHex();
+    return Character.isLowSurrogate(low) ? Character.toCodePoint(high, low)
+        : 0xFFFD;
+  }
+
+  private int readHex() throws IOException, MalformedInput {
+    int value = 0;
+    for (int i = 0; i < 4; i++) {
+      int digit = Character.digit(read(), 16);
+      if (digit < 0) {
+        throw MalformedInput.INSTANCE;
+      }
+      value = value << 4 | digit;
+    }
+    return value;
+  }
+
+  private void writeUtf8(int codePoint) {
+    if (codePoint < 0x80) {
+      token.writeByte(codePoint);
+    } else if (codePoint < 0x800) {
+      token.writeByte(0xC0 | codePoint >> 6);
+      token.writeByte(0x80 | codePoint & 0x3F);
+    } else if (codePoint < 0x10000) {
+      token.writeByte(0xE0 | codePoint >> 12);
+      token.writeByte(0x80 | codePoint >> 6 & 0x3F);
+      token.writeByte(0x80 | codePoint & 0x3F);
+    } else {
+      token.writeByte(0xF0 | codePoint >> 18);
+      token.writeByte(0x80 | codePoint >> 12 & 0x3F);
+      token.writeByte(0x80 | codePoint >> 6 & 0x3F);
+      token.writeByte(0x80 | codePoint & 0x3F);
+    }
+  }
+
+  /**
+   * Reads a number, true, false or null into the token.
+   */
+  private void readJsonLiteral() throws IOException, MalformedInput {
+    token.clear();
+    int c = peek();
+    while (c >= '0' && c <= '9' || c >= 'a' && c <= 'z' || c == '-'
+        || c == '+' || c == '.' || c == 'E') {
+      token.writeByte(read());
+      c = peek();
+    }
+    if (token.size() == 0) {
+      throw MalformedInput.INSTANCE;
+    }
+  }
+
+  private void skipJsonValue() throws IOException, MalformedInput {
+    int c = peek();
+    if (c == '"') {
+      readJsonString();
+    } else if (c == '{' || c == '[') {
+      int depth = 0;
+      do {
+        c = peek();
+        if (c == '"') {
+          readJsonString();
+          continue;
+        }
+        if (c == END || c == '\n') {
+          throw MalformedInput.INSTANCE;
+        }
+        read();
+        if (c == '{' || c == '[') {
+          depth++;
+        } else if (c == '}' || c == ']') {
+          depth--;
+        }
+      } while (depth > 0);
+    } else {
+      readJsonLiteral();
+    }
+  }
+
+  private void skipJsonWhitespace() throws IOException {
+    int c = peek();
+    while (c == ' ' || c == '\t' || c == '\r') {
+      read();
+      c = peek();
+    }
+  }
+
+  private void expect(int expected) throws IOException, MalformedInput {
+    if (read() != expected) {
+      throw MalformedInput.INSTANCE;
+    }
+  }
+
+  private boolean tokenEquals(byte[] expected) {
+    if (token.size() != expected.length) {
+      return false;
+    }
+    byte[] bytes = token.array();
+    for (int i = 0; i < expected.length; i++) {
+      if (bytes[i] != expected[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * @return the bytes of the token between from and to as a string, without
+   * leading and trailing whitespace
+   */
+  private String string(int from, int to) {
+    byte[] bytes = token.array();
+    while (from < to && (bytes[from] == ' ' || bytes[from] == '\t')) {
+      from++;
+    }
+    while (to > from && (bytes[to - 1] == ' ' || bytes[to - 1] == '\t')) {
+      to--;
+    }
+    return new String(bytes, from, to - from, StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Parses minutes or hours:minutes from the token between from and to.
+   *
+   * @return the duration in minutes, or UNDEFINED if it is not valid
+   */
+  private int parseDuration(int from, int to) {
+    byte[] bytes = token.array();
+    while (from < to && (bytes[from] == ' ' || bytes[from] == '\t')) {
+      from++;
+    }
+    while (to > from && (bytes[to - 1] == ' ' || bytes[to - 1] == '\t')) {
+      to--;
+    }
+    long hours = 0;
+    long minutes = 0;
+    int digits = 0;
+    boolean colon = false;
+    for (int i = from; i < to; i++) {
+      byte b = bytes[i];
+      if (b == ':' && !colon && digits > 0) {
+        colon = true;
+        hours = minutes;
+        minutes = 0;
+        digits = 0;
+      } else if (b >= '0' && b <= '9' && digits < 9) {
+        minutes = minutes * 10 + (b - '0');
+        digits++;
+      } else {
+        return UNDEFINED;
+      }
+    }
+    if (digits == 0 || colon && minutes >= 60) {
+      return UNDEFINED;
+    }
+    long total = hours * 60 + minutes;
+    return total > Integer.MAX_VALUE ? UNDEFINED : (int) total;
+  }
+
+  /**
+   * Creates the subtasks of the rows and adds them to the task, skipping
+   * dependencies on unknown names and, found by a depth first search,
+   * dependencies that would close a cycle.
+   */
+  private void build(OverallTask task) {
+    SubTask[] subTasks = new SubTask[nameCount];
+    int created = 0;
+    for (int i = 0; i < nameCount; i++) {
+      if (durations[i] != UNDEFINED) {
+        subTasks[i] = new SubTask(names[i], Duration.ofMinutes(durations[i]));
+        created++;
+      } else {
+        subTasks[i] = task.findSubTask(names[i]);
+      }
+    }
+    report.subTasksCreated(created);
+
+    //the dependencies of every row, in the order they were read
+    int[] first = new int[nameCount + 1];
+    for (int e = 0; e < dependencyCount; e++) {
+      if (subTasks[dependencies[e]] == null) {
+        report.unknownName(lines[dependants[e]], names[dependencies[e]]);
+      } else {
+        first[dependants[e] + 1]++;
+      }
+    }
+    for (int i = 0; i < nameCount; i++) {
+      first[i + 1] += first[i];
+    }
+    int[] next = Arrays.copyOf(first, nameCount);
+    int[] adjacent = new int[first[nameCount]];
+    for (int e = 0; e < dependencyCount; e++) {
+      if (subTasks[dependencies[e]] != null) {
+        adjacent[next[dependants[e]]++] = dependencies[e];
+      }
+    }
+
+    //an edge back to a row still on the stack closes a cycle
+    final int onStack = 1;
+    final int done = 2;
+    byte[] state = new byte[nameCount];
+    int[] stack = new int[nameCount];
+    int[] cursor = new int[nameCount];
+    for (int root = 0; root < nameCount; root++) {
+      if (state[root] != 0) {
+        continue;
+      }
+      int depth = 0;
+      stack[depth++] = root;
+      state[root] = onStack;
+      cursor[root] = first[root];
+      while (depth > 0) {
+        int node = stack[depth - 1];
+        if (cursor[node] == first[node + 1]) {
+          state[node] = done;
+          depth--;
+          continue;
+        }
+        int e = cursor[node]++;
+        int dependency = adjacent[e];
+        if (state[dependency] == onStack) {
+          report.cycle(lines[node], names[node], names[dependency]);
+          adjacent[e] = -1;
+        } else if (state[dependency] == 0) {
+          state[dependency] = onStack;
+          cursor[dependency] = first[dependency];
+          stack[depth++] = dependency;
+        }
+      }
+    }
+
+    //dependencies are added while the subtasks have no owner, which is
+    //cheap; the subtasks are then added to the task all at once
+    boolean[] hasDependant = new boolean[nameCount];
+    int[] lastDependant = new int[nameCount];
+    Arrays.fill(lastDependant, -1);
+    for (int i = 0; i < nameCount; i++) {
+      for (int e = first[i]; e < first[i + 1]; e++) {
+        int dependency = adjacent[e];
+        if (dependency < 0 || lastDependant[dependency] == i) {
+          continue;
+        }
+        lastDependant[dependency] = i;
+        subTasks[i].addDependency(subTasks[dependency]);
+        hasDependant[dependency] = true;
+        report.dependencyAdded();
+      }
+    }
+    for (int i = 0; i < nameCount; i++) {
+      if (durations[i] != UNDEFINED && !hasDependant[i]) {
+        task.addSubTask(subTasks[i]);
+      }
+    }
+  }
+
+  private static byte[] bytes(String string) {
+    return string.getBytes(StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Thrown while reading a malformed JSON row, which is then skipped.
+   */
+  private static final class MalformedInput extends Exception {
+
+    private static final long serialVersionUID = 1L;
+
+    static final MalformedInput INSTANCE = new MalformedInput();
+
+    private MalformedInput() {
+      super("Malformed input", null, false, false);
+    }
+  }
+
+  public static void main(String[] args) throws IOException {
+    int size = args.length > 0 ? Integer.parseInt(args[0]) : 500_000;
+    Random random = new Random(42);
+
+    //rows depending on up to three rows before them, and one after them
+    ByteBuilder csv = new ByteBuilder(size * 32);
+    ByteBuilder jsonLines = new ByteBuilder(size * 64);
+    for (int i = 0; i < size; i++) {
+      StringBuilder dependencies = new StringBuilder();
+      StringBuilder array = new StringBuilder();
+      int count = i == 0 ? 0 : random.nextInt(4);
+      for (int d = 0; d < count; d++) {
+        int dependency = i % 1000 == 999 && d == 0 ? i + 1
+            : Math.max(0, i - 1 - random.nextInt(1000));
+        dependencies.append(d == 0 ? "" : ";").append("Task ").append(dependency);
+        array.append(d == 0 ? "" : ",").append("\"Task ").append(dependency)
+            .append('"');
+      }
+      int duration = 1 + random.nextInt(120);
+      byte[] row = bytes("Task " + i + "," + duration + "," + dependencies
+          + "\n");
+      csv.write(row, 0, row.length);
+      row = bytes("{\"name\":\"Task " + i + "\",\"duration\":" + duration
+          + ",\"dependencies\":[" + array + "]}\n");
+      jsonLines.write(row, 0, row.length);
+    }
+
+    for (Format format : Format.values()) {
+      ByteBuilder input = format == Format.CSV ? csv : jsonLines;
+      OverallTask task = new OverallTask("Benchmark", new Duration(0, 0),
+          new Time(9, 0));
+      long start = System.nanoTime();
+      ImportReport report = importTasks(new ByteArrayInputStream(
+          input.array(), 0, input.size()), format, task);
+      long time = System.nanoTime() - start;
+      System.out.printf("%s, %d bytes: %.0f ms, %.0f rows/s%n%s%n", format,
+          input.size(), time / 1e6, report.getRowCount() / (time / 1e9),
+          report);
+    }
+  }
+}
@@ -1,17 +1,58 @@
 package application;
 
+/**
+ * A time of day. Scheduling code works on plain int minutes, counted from
+ * midnight of the day the plan starts and so free to run past 24:00; the
+ * static helpers below do that arithmetic without allocating, and a Time is
+ * only created as a view of such a value at the API edge.
+ */
 public class Time implements Comparable<Time> {
 
+  public static final int MINUTES_IN_HOUR = 60;
+  public static final int MINUTES_IN_DAY = 24 * MINUTES_IN_HOUR;
+
   private final int hours;
   private final int minutes;
 
   public Time(int hours, int minutes) {
-    assert (hours >= 0 && hours < 24 || minutes >= 0 || minutes > 59):
+    assert (hours >= 0 && hours < 24 && minutes >= 0 && minutes <= 59):
         "application.Time Error: Incorrect time format";
     this.hours = hours;
     this.minutes = minutes;
   }
 
+  /**
+   * @return the time of day reached after the given number of minutes from
+   * midnight, wrapping around for minutes on later (or earlier) days
+   */
+  public static Time fromMinutes(int minutes) {
+    int minuteOfDay = Math.floorMod(minutes, MINUTES_IN_DAY);
+    return new Time(minuteOfDay / MINUTES_IN_HOUR,
+        minuteOfDay % MINUTES_IN_HOUR);
+  }
+
+  /**
+   * @return the minutes elapsed from midnight until the given time
+   */
+  public static int toMinutes(Time time) {
+    return time.hours * MINUTES_IN_HOUR + time.minutes;
+  }
+
+  /**
+   * @return the day, counting the start day as 0, of a time in minutes
+   */
+  public static int dayOf(int minutes) {
+    return Math.floorDiv(minutes, MINUTES_IN_DAY);
+  }
+
+  /**
+   * @return the minutes from the first time until the next occurrence of the
+   * second, so that a difference never crosses more than one midnight
+   */
+  public static int minutesUntil(int from, int to) {
+    return Math.floorMod(to - from, MINUTES_IN_DAY);
+  }
+
   public int getHours() {
     return hours;
   }
@@ -20,72 +61,51 @@ public class Time implements Comparable<Time> {
     return minutes;
   }
 
+  public int getTotalMinutes() {
+    return toMinutes(this);
+  }
+
   @Override
   public String toString() {
     return (hours >= 10 ? hours : "0" + hours) + ":" + (minutes >= 10 ? minutes : "0" + minutes);
   }
 
-  //pre: otherTime is later than current time
+  //pre: otherTime is later than current time, at most a day later
   public Duration getTimeDifference(Time otherTime) {
-    int minuteDifference = Math.abs((otherTime.getMinutes() - minutes) % 60);
-    int hourDifference   = Math.abs((otherTime.getHours() - hours) % 23);
-
-    if (minuteDifference < 0) {
-      hourDifference--;
-      minuteDifference += 60;
-    }
-
-    return new Duration(hourDifference, minuteDifference);
+    return Duration.ofMinutes(minutesUntil(toMinutes(this),
+        toMinutes(otherTime)));
   }
 
   public Time addDuration(Duration duration) {
-    int durHours = duration.getHours();
-    int durMins  = duration.getRemainingMinutes();
-
-    int retHour = addHours(hours, durHours);
-    int retMin =  minutes;
-
-    if (minutes + durMins > 59) {
-      retHour = addHours(retHour,1);
-      retMin = durMins - (60 - retMin);
-    } else {
-      retMin += durMins;
-    }
-
-    return new Time(retHour, retMin);
+    return fromMinutes(toMinutes(this) + duration.getTotalMinutes());
   }
 
   public Time subDuration(Duration duration) {
-    int durHours = duration.getHours();
-    int durMins  = duration.getRemainingMinutes();
-
-    int retHour = subHours(hours, durHours);
-    int retMin =  minutes;
+    return fromMinutes(toMinutes(this) - duration.getTotalMinutes());
+  }
 
-    if (minutes - durMins < 0) {
-      retHour = subHours(retHour,1);
-      retMin = 60 - (durMins - retMin);
-    } else {
-      retMin -= durMins;
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (o == null || getClass() != o.getClass()) {
+      return false;
     }
 
-    return new Time(retHour, retMin);
-  }
+    Time that = (Time) o;
 
-  private int addHours(int startHour, int hoursToAdd) {
-    return (startHour + hoursToAdd) % 23;
+    return hours == that.hours && minutes == that.minutes;
   }
 
-  private int subHours(int startHour, int hoursToSub) {
-    return (startHour - hoursToSub) % 23;
+  @Override
+  public int hashCode() {
+    return toMinutes(this);
   }
 
   @Override
   public int compareTo(Time that) {
-    final int MINUTES_IN_HOUR = 60;
-
-    return (this.hours * MINUTES_IN_HOUR + this.minutes) -
-            (that.hours * MINUTES_IN_HOUR + that.minutes);
+    return Integer.compare(toMinutes(this), toMinutes(that));
   }
 
   //compareTo tests
@@ -96,5 +116,12 @@ public class Time implements Comparable<Time> {
     System.out.println(t.compareTo(new Time(3, 2)));
     System.out.println(t.compareTo(new Time(3, 40)));
     System.out.println(t.compareTo(new Time(4, 0)));;
+
+    //arithmetic across midnight
+    Time late = new Time(23, 30);
+    System.out.println(late.addDuration(new Duration(1, 45)));
+    System.out.println(t.subDuration(new Duration(4, 10)));
+    System.out.println(late.getTimeDifference(new Time(1, 15)));
+    System.out.println(dayOf(toMinutes(late) + 90));
   }
 }
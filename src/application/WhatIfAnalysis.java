@@ -0,0 +1,153 @@
+package application;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Answers "what if" questions about an OverallTask: how the finish time and
+ * the critical path change when the durations of some subtasks change. The
+ * PlanTopology of the task is built once, when the analysis is created, and
+ * every batch of scenarios is evaluated against it as one ScenarioBatch, so
+ * no SubTask is cloned and no TaskGraph is generated.
+ *
+ * Like IncrementalCriticalPath, the structure and the base durations of the
+ * plan are fixed when the analysis is created; after editing the task a new
+ * analysis has to be created.
+ */
+public final class WhatIfAnalysis {
+
+  private final PlanTopology topology;
+  private final int[] baseDuration;
+  private final Schedule baseSchedule;
+
+  WhatIfAnalysis(OverallTask task) {
+    this.topology     = PlanTopology.of(task);
+    this.baseDuration = topology.getDurations();
+    this.baseSchedule = ActivityOnNodeScheduler.schedule(topology,
+        baseDuration);
+  }
+
+  public PlanTopology getTopology() {
+    return topology;
+  }
+
+  /**
+   * @return the schedule of the plan with its own durations
+   */
+  public Schedule getBaseSchedule() {
+    return baseSchedule;
+  }
+
+  /**
+   * @param name a name describing the scenario
+   * @return a scenario with no overrides, that is, the plan as it is
+   */
+  public Scenario newScenario(String name) {
+    return new Scenario(name);
+  }
+
+  /**
+   * Evaluates all the given scenarios together.
+   *
+   * @param scenarios scenarios created by this analysis
+   * @return the finish times and critical paths of every scenario, in order
+   */
+  public WhatIfResult evaluate(List<Scenario> scenarios) {
+    if (scenarios.isEmpty()) {
+      return new WhatIfResult(baseSchedule, scenarios, null);
+    }
+    //overrides are relative to the durations the analysis was created with,
+    //whatever the subtasks have been changed to since
+    ScenarioBatch batch = new ScenarioBatch(topology, baseDuration,
+        scenarios.size());
+    for (int s = 0; s < scenarios.size(); s++) {
+      Scenario scenario = scenarios.get(s);
+      if (scenario.getAnalysis() != this) {
+        throw new IllegalArgumentException("Scenario " + scenario.getName()
+            + " belongs to another analysis");
+      }
+      for (int o = 0; o < scenario.overrideCount; o++) {
+        batch.setDuration(scenario.indices[o], s, scenario.minutes[o]);
+      }
+    }
+    batch.evaluate();
+    return new WhatIfResult(baseSchedule, scenarios, batch);
+  }
+
+  /**
+   * A set of duration overrides. Overriding the same subtask again replaces
+   * its previous override.
+   */
+  public final class Scenario {
+
+    private final String name;
+    //overridden subtask indices and their durations in minutes
+    private int[] indices = new int[4];
+    private int[] minutes = new int[4];
+    private int overrideCount;
+
+    private Scenario(String name) {
+      this.name = name;
+    }
+
+    public String getName() {
+      return name;
+    }
+
+    WhatIfAnalysis getAnalysis() {
+      return WhatIfAnalysis.this;
+    }
+
+    /**
+     * Sets the duration of the subtask in this scenario.
+     *
+     * @return this scenario
+     * @throws IllegalArgumentException if the subtask is not in the plan
+     */
+    public Scenario setDuration(SubTask subTask, Duration duration) {
+      return override(indexOf(subTask), duration.getTotalMinutes());
+    }
+
+    /**
+     * Makes the subtask take the given time longer than in the plan.
+     *
+     * @return this scenario
+     * @throws IllegalArgumentException if the subtask is not in the plan
+     */
+    public Scenario delay(SubTask subTask, Duration delay) {
+      int index = indexOf(subTask);
+      return override(index, baseDuration[index] + delay.getTotalMinutes());
+    }
+
+    private Scenario override(int index, int duration) {
+      for (int o = 0; o < overrideCount; o++) {
+        if (indices[o] == index) {
+          minutes[o] = duration;
+          return this;
+        }
+      }
+      if (overrideCount == indices.length) {
+        indices = Arrays.copyOf(indices, overrideCount * 2);
+        minutes = Arrays.copyOf(minutes, overrideCount * 2);
+      }
+      indices[overrideCount] = index;
+      minutes[overrideCount] = duration;
+      overrideCount++;
+      return this;
+    }
+
+    private int indexOf(SubTask subTask) {
+      int index = topology.indexOf(subTask);
+      if (index < 0) {
+        throw new IllegalArgumentException(subTask.getTaskName()
+            + " is not part of this plan");
+      }
+      return index;
+    }
+
+    @Override
+    public String toString() {
+      return name;
+    }
+  }
+}
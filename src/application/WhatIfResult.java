@@ -0,0 +1,92 @@
+package application;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The evaluation of a batch of WhatIfAnalysis scenarios. Finish times are
+ * read straight from the evaluated ScenarioBatch; the full schedule of a
+ * scenario, and with it its critical path, is only built when asked for.
+ */
+public final class WhatIfResult {
+
+  private final Schedule baseSchedule;
+  private final List<WhatIfAnalysis.Scenario> scenarios;
+  //null if there are no scenarios
+  private final ScenarioBatch batch;
+
+  WhatIfResult(Schedule baseSchedule, List<WhatIfAnalysis.Scenario> scenarios,
+               ScenarioBatch batch) {
+    this.baseSchedule = baseSchedule;
+    this.scenarios    = new ArrayList<>(scenarios);
+    this.batch        = batch;
+  }
+
+  public int size() {
+    return scenarios.size();
+  }
+
+  public WhatIfAnalysis.Scenario getScenario(int scenario) {
+    return scenarios.get(scenario);
+  }
+
+  /**
+   * @return the finish time of the scenario, in minutes
+   */
+  public int getFinishTime(int scenario) {
+    checkScenario(scenario);
+    return batch.getFinishTime(scenario);
+  }
+
+  /**
+   * @return how much later, in minutes, the scenario finishes than the plan
+   * as it is. Negative if it finishes earlier.
+   */
+  public int getFinishTimeChange(int scenario) {
+    checkScenario(scenario);
+    return batch.getFinishTime(scenario) - baseSchedule.getFinishTime();
+  }
+
+  /**
+   * @return the IDs of the subtasks of a critical path of the scenario, in
+   * the order they are carried out
+   */
+  public int[] getCriticalPath(int scenario) {
+    return getSchedule(scenario).getCriticalPath();
+  }
+
+  /**
+   * @return the full schedule of the scenario
+   */
+  public Schedule getSchedule(int scenario) {
+    checkScenario(scenario);
+    PlanTopology topology = batch.getTopology();
+    int n = topology.size();
+    int[] duration = new int[n];
+    int[] earliestStart = new int[n];
+    int[] latestStart = new int[n];
+    int[] freeFloat = new int[n];
+    int finish = batch.getFinishTime(scenario);
+    for (int t = 0; t < n; t++) {
+      duration[t] = batch.getDuration(t, scenario);
+      earliestStart[t] = batch.getEarliestStart(t, scenario);
+      latestStart[t] = batch.getLatestStart(t, scenario);
+    }
+    for (int t = 0; t < n; t++) {
+      int nextStart = finish;
+      for (int a = topology.getFirstSucc(t); a < topology.getEndSucc(t); a++) {
+        nextStart = Math.min(nextStart, earliestStart[topology.getSucc(a)]);
+      }
+      freeFloat[t] = nextStart - earliestStart[t] - duration[t];
+    }
+    return new Schedule(topology, duration, earliestStart, latestStart,
+        freeFloat, finish);
+  }
+
+  private void checkScenario(int scenario) {
+    if (scenario < 0 || scenario >= scenarios.size()) {
+      throw new IndexOutOfBoundsException("No scenario " + scenario + " in "
+          + scenarios.size());
+    }
+  }
+}
@@ -0,0 +1,555 @@
+package application;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * A workspace saved to disk: a list of OverallTasks with all their subtasks,
+ * in a compact binary format that is read through a MappedByteBuffer. Opening
+ * a workspace only reads its header; every plan, and every string, is decoded
+ * straight from the mapped file when it is asked for.
+ *
+ * The layout of version 2, with fixed-width numbers big-endian:
+ *
+ * header   the magic number "CPAW" and the int version
+ * strings  int count, int[count + 1] offsets into the blob, and the blob of
+ *          UTF-8 strings; every name and description is stored once
+ * plans    int count and, per plan, a fixed-width summary: int name, int
+ *          description, int duration, int start time, int hands, int subtask
+ *          count, long body offset and int body length
+ * bodies   per plan, its subtasks in topological order, so that every
+ *          dependency comes before the subtasks depending on it. Per subtask:
+ *          varint ID, varint name, zigzag varint duration minus the previous
+ *          duration,
+ *          varint resource demand, a byte of flags, the varint optimistic and
+ *          pessimistic durations if it has an estimate, varint dependency
+ *          count and, per dependency, the varint distance back to it.
+ *
+ * Strings are indices into the string table and durations and times are in
+ * minutes. Since the summaries are apart from the bodies, the plans of a
+ * workspace can be listed without reading their subtasks, see
+ * readSummaries. Subtasks keep their IDs, so that a WorkspaceJournal written
+ * after the file refers to the same subtasks when it is replayed on it.
+ * Version 1 files have no IDs; their subtasks are given new ones.
+ */
+public final class WorkspaceFile {
+
+  public static final int VERSION = 2;
+
+  /** "CPAW"*/
+  private static final int MAGIC = 0x43504157;
+  private static final int SUMMARY_SIZE = 6 * 4 + 8 + 4;
+  /** Flag of a subtask added to the task directly, not only as a dependency*/
+  private static final int TOP_LEVEL = 1;
+  /** Flag of a subtask with a three point estimate*/
+  private static final int ESTIMATE = 2;
+
+  private final ByteBuffer buffer;
+  private final boolean hasIds;
+  private final int stringCount;
+  private final int stringOffsets;
+  private final int stringBlob;
+  private final String[] strings;
+  private final int planCount;
+  private final int summaries;
+
+  private WorkspaceFile(ByteBuffer buffer) throws IOException {
+    this.buffer = buffer;
+    if (buffer.getInt(0) != MAGIC) {
+      throw new IOException("Not a workspace file");
+    }
+    int version = buffer.getInt(4);
+    if (version < 1 || version > VERSION) {
+      throw new IOException("Unsupported workspace version " + version);
+    }
+    this.hasIds        = version >= 2;
+    this.stringCount   = buffer.getInt(8);
+    if (stringCount < 0 || stringCount > buffer.limit() / 4) {
+      throw new IOException("Workspace file is corrupt");
+    }
+    this.stringOffsets = 12;
+    this.stringBlob    = stringOffsets + 4 * (stringCount + 1);
+    this.strings       = new String[stringCount];
+    int planTable      = stringBlob
+        + buffer.getInt(stringOffsets + 4 * stringCount);
+    this.planCount     = buffer.getInt(planTable);
+    this.summaries     = planTable + 4;
+    if (planCount < 0
+        || summaries + (long) planCount * SUMMARY_SIZE > buffer.limit()) {
+      throw new IOException("Workspace file is corrupt");
+    }
+  }
+
+  /**
+   * Maps the workspace file into memory. The mapping stays valid after the
+   * file is closed, until this object is garbage collected.
+   *
+   * @param path the file to open
+   * @return the opened workspace
+   * @throws IOException if the file cannot be read or is not a workspace
+   */
+  public static WorkspaceFile open(Path path) throws IOException {
+    try (FileChannel channel = FileChannel.open(path,
+        StandardOpenOption.READ)) {
+      long size = channel.size();
+      if (size > Integer.MAX_VALUE) {
+        throw new IOException("Workspace file is too large to map");
+      }
+      return new WorkspaceFile(channel.map(FileChannel.MapMode.READ_ONLY, 0,
+          size));
+    } catch (IndexOutOfBoundsException e) {
+      throw new IOException("Workspace file is truncated", e);
+    }
+  }
+
+  public int getPlanCount() {
+    return planCount;
+  }
+
+  /**
+   * @return the number of subtasks of the plan, without reading them
+   */
+  public int getSubTaskCount(int plan) {
+    return buffer.getInt(summary(plan) + 20);
+  }
+
+  /**
+   * Reads the name, description, duration, start time and hands of a plan,
+   * without its subtasks.
+   *
+   * @throws IOException if the plan is corrupt
+   */
+  public OverallTask readSummary(int plan) throws IOException {
+    int at = summary(plan);
+    try {
+      OverallTask task = new OverallTask(string(buffer.getInt(at)),
+          Duration.ofMinutes(buffer.getInt(at + 8)),
+          Time.fromMinutes(buffer.getInt(at + 12)),
+          string(buffer.getInt(at + 4)));
+      task.setHands(buffer.getInt(at + 16));
+      return task;
+    } catch (IndexOutOfBoundsException | IllegalArgumentException e) {
+      throw new IOException("Plan " + plan + " is corrupt", e);
+    }
+  }
+
+  /**
+   * Reads the subtasks of a plan and adds them to the given task, usually
+   * the one returned by readSummary.
+   *
+   * @throws IOException if the plan is corrupt
+   */
+  public void readSubTasks(int plan, OverallTask task) throws IOException {
+    int count = getSubTaskCount(plan);
+    ByteBuffer body = body(plan);
+
+    try {
+      //dependencies are added while the subtasks have no owner, which is
+      //cheap; the subtasks are then made part of the task all at once
+      SubTask[] subTasks = new SubTask[count];
+      int[] ids = new int[count];
+      List<SubTask> topLevel = new ArrayList<>();
+      int duration = 0;
+      for (int p = 0; p < count; p++) {
+        ids[p] = hasIds ? ByteBuilder.readVarint(body) : p;
+        String name = string(ByteBuilder.readVarint(body));
+        duration += ByteBuilder.readZigzag(body);
+        SubTask subTask = new SubTask(name, Duration.ofMinutes(duration));
+        subTask.setResourceDemand(ByteBuilder.readVarint(body));
+        int flags = body.get();
+        if ((flags & ESTIMATE) != 0) {
+          Duration optimistic = Duration.ofMinutes(ByteBuilder.readVarint(body));
+          Duration pessimistic = Duration.ofMinutes(
+              ByteBuilder.readVarint(body));
+          subTask.restoreEstimate(optimistic, subTask.getDuration(),
+              pessimistic);
+        }
+        int dependencyCount = ByteBuilder.readVarint(body);
+        for (int d = 0; d < dependencyCount; d++) {
+          int distance = ByteBuilder.readVarint(body);
+          if (distance < 1 || distance > p) {
+            throw new IOException("Plan " + plan + " is corrupt");
+          }
+          subTask.addDependency(subTasks[p - distance]);
+        }
+        if ((flags & TOP_LEVEL) != 0) {
+          topLevel.add(subTask);
+        }
+        subTasks[p] = subTask;
+      }
+      task.adoptAll(subTasks, ids);
+      for (SubTask subTask : topLevel) {
+        task.addSubTask(subTask);
+      }
+    } catch (BufferUnderflowException | IndexOutOfBoundsException
+        | IllegalArgumentException e) {
+      throw new IOException("Plan " + plan + " is corrupt", e);
+    }
+  }
+
+  /**
+   * Reads a whole plan.
+   *
+   * @throws IOException if the plan is corrupt
+   */
+  public OverallTask readPlan(int plan) throws IOException {
+    OverallTask task = readSummary(plan);
+    readSubTasks(plan, task);
+    return task;
+  }
+
+  /**
+   * Reads the summary of every plan of the workspace, in order. The
+   * subtasks of each plan are only read from the file when they are first
+   * needed, and can then be unloaded again, see PlanCache.
+   *
+   * @throws IOException if a plan is corrupt
+   */
+  public List<OverallTask> readSummaries() throws IOException {
+    List<OverallTask> tasks = new ArrayList<>(planCount);
+    for (int plan = 0; plan < planCount; plan++) {
+      OverallTask task = readSummary(plan);
+      task.loadLater(this, plan);
+      tasks.add(task);
+    }
+    return tasks;
+  }
+
+  /**
+   * Reads every plan of the workspace, in order.
+   *
+   * @throws IOException if a plan is corrupt
+   */
+  public List<OverallTask> readAll() throws IOException {
+    List<OverallTask> tasks = new ArrayList<>(planCount);
+    for (int plan = 0; plan < planCount; plan++) {
+      tasks.add(readPlan(plan));
+    }
+    return tasks;
+  }
+
+  /**
+   * Copies the subtasks of a plan to the encoder without decoding them into
+   * SubTasks: only their names are translated to the string table of the
+   * encoder.
+   *
+   * @throws IOException if the plan is corrupt
+   */
+  private void copySubTasks(int plan, Encoder encoder) throws IOException {
+    int count = getSubTaskCount(plan);
+    ByteBuffer body = body(plan);
+    ByteBuilder out = encoder.body;
+    try {
+      for (int p = 0; p < count; p++) {
+        out.writeVarint(hasIds ? ByteBuilder.readVarint(body) : p);
+        out.writeVarint(encoder.intern(string(ByteBuilder.readVarint(body))));
+        out.writeZigzag(ByteBuilder.readZigzag(body));
+        out.writeVarint(ByteBuilder.readVarint(body));
+        int flags = body.get();
+        out.writeByte(flags);
+        int varints = (flags & ESTIMATE) != 0 ? 2 : 0;
+        for (int i = 0; i < varints; i++) {
+          out.writeVarint(ByteBuilder.readVarint(body));
+        }
+        int dependencyCount = ByteBuilder.readVarint(body);
+        out.writeVarint(dependencyCount);
+        for (int d = 0; d < dependencyCount; d++) {
+          out.writeVarint(ByteBuilder.readVarint(body));
+        }
+      }
+    } catch (BufferUnderflowException e) {
+      throw new IOException("Plan " + plan + " is corrupt", e);
+    }
+  }
+
+  /**
+   * @return a buffer over the body of the plan
+   */
+  private ByteBuffer body(int plan) throws IOException {
+    int at = summary(plan);
+    int count = buffer.getInt(at + 20);
+    long offset = buffer.getLong(at + 24);
+    int length = buffer.getInt(at + 32);
+    if (count < 0 || offset < 0 || length < 0
+        || offset + length > buffer.limit()) {
+      throw new IOException("Plan " + plan + " is corrupt");
+    }
+    ByteBuffer body = buffer.duplicate();
+    body.limit((int) offset + length).position((int) offset);
+    return body;
+  }
+
+  private int summary(int plan) {
+    if (plan < 0 || plan >= planCount) {
+      throw new IndexOutOfBoundsException("No plan " + plan);
+    }
+    return summaries + plan * SUMMARY_SIZE;
+  }
+
+  /**
+   * Decodes a string of the string table the first time it is used.
+   */
+  private synchronized String string(int index) throws IOException {
+    if (index < 0 || index >= stringCount) {
+      throw new IOException("No string " + index);
+    }
+    String string = strings[index];
+    if (string == null) {
+      int from = buffer.getInt(stringOffsets + 4 * index);
+      int to = buffer.getInt(stringOffsets + 4 * (index + 1));
+      if (from < 0 || to < from) {
+        throw new IOException("String " + index + " is corrupt");
+      }
+      byte[] bytes = new byte[to - from];
+      ByteBuffer blob = buffer.duplicate();
+      blob.position(stringBlob + from);
+      blob.get(bytes);
+      string = new String(bytes, StandardCharsets.UTF_8);
+      strings[index] = string;
+    }
+    return string;
+  }
+
+  /**
+   * Writes the tasks to the file, replacing it. The workspace is written to
+   * a temporary file next to it, forced to disk and then moved into place,
+   * so the old workspace is kept intact if writing fails.
+   *
+   * @param path the file to write
+   * @param tasks the tasks of the workspace, in order
+   * @throws IOException if the file cannot be written
+   * @throws IllegalStateException if the dependencies of a task contain a
+   * cycle, or the subtasks of a task that are not in memory cannot be read
+   */
+  public static void write(Path path, Collection<OverallTask> tasks)
+      throws IOException {
+    encode(tasks).write(path);
+  }
+
+  /**
+   * Encodes the tasks without writing them, so that they can be written by
+   * another thread while the tasks change. The subtasks of tasks that are
+   * not in memory are copied from their workspace file rather than loaded.
+   *
+   * @throws IllegalStateException if the dependencies of a task contain a
+   * cycle, or the subtasks of a task that are not in memory cannot be read
+   */
+  static Encoder encode(Collection<OverallTask> tasks) {
+    Encoder encoder = new Encoder(tasks.size());
+    for (OverallTask task : tasks) {
+      encoder.addPlan(task);
+    }
+    return encoder;
+  }
+
+  /**
+   * Encodes the bodies of the plans into one growing byte array, collecting
+   * the string table and the summaries on the way; the header and tables
+   * are written in front of the bodies once they are complete.
+   */
+  static final class Encoder {
+
+    private final Map<String, Integer> stringIndex = new HashMap<>();
+    private final List<byte[]> strings = new ArrayList<>();
+    private int stringBytes;
+    private final int[] summaryInts;
+    private final long[] bodyOffsets;
+    private int planCount;
+    private final ByteBuilder body = new ByteBuilder(1 << 12);
+    //the tasks encoded, and the versions of their subtasks
+    private final OverallTask[] tasks;
+    private final int[] versions;
+
+    private Encoder(int plans) {
+      this.summaryInts = new int[plans * 6];
+      this.bodyOffsets = new long[plans + 1];
+      this.tasks       = new OverallTask[plans];
+      this.versions    = new int[plans];
+    }
+
+    /**
+     * Records that the encoded tasks have been written to the file, so that
+     * those that have not changed since can read their subtasks back from
+     * it once unloaded. Must be called by the thread that changes the tasks.
+     */
+    void saved(WorkspaceFile file) {
+      for (int plan = 0; plan < planCount; plan++) {
+        tasks[plan].saved(file, plan, versions[plan]);
+      }
+    }
+
+    /**
+     * Writes the encoded tasks to the file, replacing it. They are written
+     * to a temporary file next to it, forced to disk and then moved into
+     * place, so the old file is kept intact if writing fails.
+     *
+     * @throws IOException if the file cannot be written
+     */
+    void write(Path path) throws IOException {
+      Path parent = path.toAbsolutePath().getParent();
+      Files.createDirectories(parent);
+      Path temporary = Files.createTempFile(parent, path.getFileName()
+          .toString(), ".tmp");
+      try {
+        try (FileChannel channel = FileChannel.open(temporary,
+            StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+          DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+              Channels.newOutputStream(channel), 1 << 16));
+          writeTo(out);
+          out.flush();
+          channel.force(true);
+        }
+        Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING,
+            StandardCopyOption.ATOMIC_MOVE);
+      } finally {
+        Files.deleteIfExists(temporary);
+      }
+    }
+
+    void addPlan(OverallTask task) {
+      int[] s = summaryInts;
+      int at = planCount * 6;
+      s[at] = intern(task.getTaskName());
+      s[at + 1] = intern(task.getDescription() == null ? ""
+          : task.getDescription());
+      s[at + 2] = task.getDuration().getTotalMinutes();
+      s[at + 3] = Time.toMinutes(task.getStartTime());
+      s[at + 4] = task.getHands();
+      tasks[planCount] = task;
+      versions[planCount] = task.getVersion();
+
+      if (!task.isLoaded()) {
+        s[at + 5] = task.getSubTaskCount();
+        try {
+          task.getSource().copySubTasks(task.getSourcePlan(), this);
+        } catch (IOException e) {
+          throw new IllegalStateException("Cannot read the subtasks of "
+              + task.getTaskName(), e);
+        }
+        bodyOffsets[++planCount] = body.size();
+        return;
+      }
+      PlanTopology topology = PlanTopology.of(task);
+      int n = topology.size();
+      s[at + 5] = n;
+      int previous = 0;
+      for (int p = 0; p < n; p++) {
+        SubTask subTask = topology.getTask(topology.getOrder(p));
+        int duration = subTask.getDuration().getTotalMinutes();
+        body.writeVarint(subTask.getId());
+        body.writeVarint(intern(subTask.getTaskName()));
+        body.writeZigzag(duration - previous);
+        previous = duration;
+        body.writeVarint(subTask.getResourceDemand());
+        int flags = (task.getAllSubTasks().contains(subTask) ? TOP_LEVEL : 0)
+            | (subTask.hasEstimate() ? ESTIMATE : 0);
+        body.writeByte(flags);
+        if (subTask.hasEstimate()) {
+          body.writeVarint(subTask.getOptimisticDuration().getTotalMinutes());
+          body.writeVarint(subTask.getPessimisticDuration().getTotalMinutes());
+        }
+        List<SubTask> dependencies = subTask.getDependencies();
+        body.writeVarint(dependencies.size());
+        for (SubTask dependency : dependencies) {
+          body.writeVarint(p
+              - topology.getPosition(topology.indexOf(dependency)));
+        }
+      }
+      bodyOffsets[++planCount] = body.size();
+    }
+
+    void writeTo(DataOutputStream out) throws IOException {
+      out.writeInt(MAGIC);
+      out.writeInt(VERSION);
+      out.writeInt(strings.size());
+      int offset = 0;
+      for (byte[] string : strings) {
+        out.writeInt(offset);
+        offset += string.length;
+      }
+      out.writeInt(offset);
+      for (byte[] string : strings) {
+        out.write(string);
+      }
+
+      out.writeInt(planCount);
+      long bodies = 4L * (3 + strings.size() + 1) + stringBytes + 4
+          + (long) planCount * SUMMARY_SIZE;
+      for (int plan = 0; plan < planCount; plan++) {
+        for (int i = 0; i < 6; i++) {
+          out.writeInt(summaryInts[plan * 6 + i]);
+        }
+        out.writeLong(bodies + bodyOffsets[plan]);
+        out.writeInt((int) (bodyOffsets[plan + 1] - bodyOffsets[plan]));
+      }
+      body.writeTo(out);
+    }
+
+    private int intern(String string) {
+      Integer index = stringIndex.get(string);
+      if (index == null) {
+        byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+        index = strings.size();
+        strings.add(bytes);
+        stringBytes += bytes.length;
+        stringIndex.put(string, index);
+      }
+      return index;
+    }
+  }
+
+  public static void main(String[] args) throws IOException {
+    int size = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+    Random random = new Random(42);
+
+    //a chain of layers, every subtask depending on up to three before it
+    OverallTask task = new OverallTask("Benchmark", new Duration(0, 0),
+        new Time(9, 0));
+    SubTask[] subTasks = new SubTask[size];
+    for (int i = 0; i < size; i++) {
+      subTasks[i] = new SubTask("Task " + i,
+          new Duration(0, 1 + random.nextInt(59)));
+      for (int d = 0; d < 3 && i > 0; d++) {
+        SubTask dep = subTasks[Math.max(0, i - 1 - random.nextInt(1000))];
+        if (!subTasks[i].getDependencies().contains(dep)) {
+          subTasks[i].addDependency(dep);
+        }
+      }
+    }
+    for (int i = size - 1000; i < size; i++) {
+      task.addSubTask(subTasks[Math.max(0, i)]);
+    }
+
+    Path path = Files.createTempFile("workspace", ".cpaw");
+    long writeStart = System.nanoTime();
+    write(path, Collections.singletonList(task));
+    long writeTime = System.nanoTime() - writeStart;
+    long readStart = System.nanoTime();
+    OverallTask read = open(path).readPlan(0);
+    long readTime = System.nanoTime() - readStart;
+    if (read.getSubTaskCount() != task.getSubTaskCount()
+        || read.schedule().getFinishTime() != task.schedule().getFinishTime()) {
+      throw new AssertionError("Workspace changed on the way to disk");
+    }
+    System.out.printf("%d subtasks, %d bytes: write %.0f ms, read %.0f ms%n",
+        size, Files.size(path), writeTime / 1e6, readTime / 1e6);
+    Files.delete(path);
+  }
+}
@@ -0,0 +1,770 @@
+package application;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+
+/**
+ * Keeps a workspace on disk as a snapshot, a WorkspaceFile, and a journal of
+ * every change made to the plans since the snapshot was taken. Each change
+ * is appended to the journal as one small record, so saving costs as much
+ * as the change rather than as the whole workspace.
+ *
+ * The journal listens to every plan it keeps, see PlanListener, and is told
+ * by the application when plans are added to or removed from the workspace.
+ * Subtasks are identified in records by their IDs, which WorkspaceFile keeps,
+ * and plans by a number given to each plan when it is added; the plans of a
+ * snapshot are numbered in order.
+ *
+ * Records are appended to a buffer in memory by the thread that changes the
+ * plans and written out by a single background thread. Every write is forced
+ * to disk before the next one starts, and all records appended meanwhile go
+ * out together in that next write (group commit). Once the journal outgrows
+ * COMPACTION_THRESHOLD, the workspace is snapshotted again: a new generation
+ * of snapshot and journal is started, the snapshot is written by another
+ * background thread and the files of the old generation are then deleted.
+ * The snapshot has to be taken between two changes, never in the middle of
+ * one, so it is taken by a task run on the thread that changes the plans,
+ * through the executor given to open.
+ *
+ * Each record is framed by its length and CRC32, so a record torn by a
+ * crash is recognised. On opening, the summaries of the plans of the newest
+ * snapshot are read and the journals from its generation on are replayed up
+ * to the first torn record. The subtasks of a plan are only read from the
+ * snapshot once needed, by the replay or later, and plans left unchanged
+ * since the last snapshot can be unloaded again by a PlanCache.
+ *
+ * Except for sync and close, the journal is not thread safe: it has to be
+ * used by the thread that changes the plans, the Swing event thread in the
+ * application.
+ */
+public final class WorkspaceJournal implements PlanListener, AutoCloseable {
+
+  /** Size of the journal, in bytes, past which the workspace is snapshotted*/
+  public static final int COMPACTION_THRESHOLD = 4 * 1024 * 1024;
+
+  private static final Pattern SNAPSHOT = Pattern.compile(
+      "snapshot-(\\d+)\\.cpaw");
+  private static final Pattern JOURNAL = Pattern.compile(
+      "journal-(\\d+)\\.log");
+  /** Bytes framing every record: its length and its CRC32*/
+  private static final int FRAME_SIZE = 8;
+
+  //record types
+  private static final byte ADD_PLAN = 1;
+  private static final byte REMOVE_PLAN = 2;
+  private static final byte SET_PLAN = 3;
+  private static final byte ADD_SUBTASK = 4;
+  private static final byte SET_SUBTASK = 5;
+  private static final byte ADD_TOP_LEVEL = 6;
+  private static final byte REMOVE_TOP_LEVEL = 7;
+  private static final byte DETACH_SUBTASK = 8;
+  private static final byte ADD_DEPENDENCY = 9;
+  private static final byte REMOVE_DEPENDENCY = 10;
+
+  private final Path directory;
+  private final Executor modelThread;
+  private final List<OverallTask> plans;
+  private final Map<OverallTask, Integer> planIds = new IdentityHashMap<>();
+  private int nextPlanId;
+  private long generation;
+  private int journalSize;
+
+  private final ByteBuilder record = new ByteBuilder(256);
+  private final CRC32 crc = new CRC32();
+  //records not yet handed to the writer, guarded by this
+  private ByteBuilder pending = new ByteBuilder(1 << 12);
+  private ByteBuilder spare = new ByteBuilder(1 << 12);
+  private boolean flushScheduled;
+  //generations started but not yet switched to by the writer
+  private int rotations;
+
+  //only used by the writer thread
+  private final ExecutorService writer;
+  private FileChannel channel;
+  //the first write that failed; once set, no more records are accepted, as
+  //records written after a lost one could not be replayed
+  private volatile IOException failure;
+
+  private final ExecutorService snapshotWriter;
+  private Future<?> snapshotting;
+  private volatile IOException snapshotFailure;
+  private boolean compactionRequested;
+
+  private WorkspaceJournal(Path directory, Executor modelThread,
+                           List<OverallTask> plans) {
+    this.directory      = directory;
+    this.modelThread    = modelThread;
+    this.plans          = plans;
+    this.writer         = daemonExecutor("workspace-journal");
+    this.snapshotWriter = daemonExecutor("workspace-snapshot");
+  }
+
+  private static ExecutorService daemonExecutor(String name) {
+    return Executors.newSingleThreadExecutor(runnable -> {
+      Thread thread = new Thread(runnable, name);
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+
+  /**
+   * Opens the workspace kept in the directory, creating it if there is none,
+   * and recovers its plans from the newest snapshot and the journals after
+   * it.
+   *
+   * @param directory the directory of the snapshot and journal files
+   * @param modelThread runs tasks on the thread that changes the plans, once
+   * the change being made is complete, such as SwingUtilities::invokeLater
+   * @return the journal, listening to every recovered plan
+   * @throws IOException if the files cannot be read or written
+   */
+  public static WorkspaceJournal open(Path directory, Executor modelThread)
+      throws IOException {
+    Files.createDirectories(directory);
+    TreeSet<Long> snapshots = new TreeSet<>();
+    TreeSet<Long> journals = new TreeSet<>();
+    try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+      for (Path file : files) {
+        String name = file.getFileName().toString();
+        Matcher snapshot = SNAPSHOT.matcher(name);
+        Matcher journal = JOURNAL.matcher(name);
+        if (snapshot.matches()) {
+          snapshots.add(Long.parseLong(snapshot.group(1)));
+        } else if (journal.matches()) {
+          journals.add(Long.parseLong(journal.group(1)));
+        }
+      }
+    }
+
+    //a generation's journal holds the changes made after its snapshot
+    long first = snapshots.isEmpty() ? 0 : snapshots.last();
+    List<OverallTask> plans = snapshots.isEmpty() ? new ArrayList<>()
+        : WorkspaceFile.open(snapshotPath(directory, first)).readSummaries();
+    WorkspaceJournal journal = new WorkspaceJournal(directory, modelThread,
+        plans);
+    long replayed = 0;
+    boolean complete = true;
+    for (long g = first; journals.contains(g) && complete; g++) {
+      journal.numberPlans();
+      complete = journal.replay(journalPath(directory, g));
+      replayed += journal.journalSize;
+    }
+
+    long newest = Math.max(first, journals.isEmpty() ? 0 : journals.last());
+    if (replayed == 0 && complete && newest == first) {
+      //nothing to recover, keep appending to the journal of the snapshot
+      journal.generation = first;
+      journal.numberPlans();
+      journal.startGeneration(null);
+    } else {
+      //start from a snapshot of what was recovered
+      journal.generation = newest;
+      journal.compact();
+    }
+    for (OverallTask plan : plans) {
+      plan.setPlanListener(journal);
+    }
+    return journal;
+  }
+
+  /**
+   * @return the plans of the workspace, in order. The list must only be
+   * changed through planAdded and planRemoved.
+   */
+  public List<OverallTask> getPlans() {
+    return Collections.unmodifiableList(plans);
+  }
+
+  /**
+   * Adds the plan, with all its subtasks, to the workspace, and starts
+   * listening to it. Does nothing if the plan is already part of it.
+   */
+  public void planAdded(OverallTask plan) {
+    if (planIds.containsKey(plan)) {
+      return;
+    }
+    int id = nextPlanId++;
+    planIds.put(plan, id);
+    plans.add(plan);
+    begin(ADD_PLAN, id);
+    writePlanFields(plan);
+    end();
+    //the subtasks, dependencies first, and then which of them are top level
+    PlanTopology topology = PlanTopology.of(plan);
+    for (int p = 0; p < topology.size(); p++) {
+      subTaskAdded(plan, topology.getTask(topology.getOrder(p)));
+    }
+    for (SubTask subTask : plan.getAllSubTasks()) {
+      topLevelAdded(plan, subTask);
+    }
+    plan.setPlanListener(this);
+  }
+
+  /**
+   * Removes the plan from the workspace and stops listening to it.
+   */
+  public void planRemoved(OverallTask plan) {
+    Integer id = planIds.remove(plan);
+    if (id == null) {
+      return;
+    }
+    plans.remove(plan);
+    if (plan.getPlanListener() == this) {
+      plan.setPlanListener(null);
+    }
+    begin(REMOVE_PLAN, id);
+    end();
+  }
+
+  @Override
+  public void planChanged(OverallTask plan) {
+    begin(SET_PLAN, planIds.get(plan));
+    writePlanFields(plan);
+    end();
+  }
+
+  @Override
+  public void subTaskAdded(OverallTask plan, SubTask subTask) {
+    begin(ADD_SUBTASK, planIds.get(plan));
+    record.writeVarint(subTask.getId());
+    writeSubTaskFields(subTask);
+    List<SubTask> dependencies = subTask.getDependencies();
+    record.writeVarint(dependencies.size());
+    for (SubTask dependency : dependencies) {
+      record.writeVarint(dependency.getId());
+    }
+    end();
+  }
+
+  @Override
+  public void subTaskChanged(OverallTask plan, SubTask subTask) {
+    begin(SET_SUBTASK, planIds.get(plan));
+    record.writeVarint(subTask.getId());
+    writeSubTaskFields(subTask);
+    end();
+  }
+
+  @Override
+  public void topLevelAdded(OverallTask plan, SubTask subTask) {
+    writeSubTaskRecord(ADD_TOP_LEVEL, plan, subTask);
+  }
+
+  @Override
+  public void topLevelRemoved(OverallTask plan, SubTask subTask) {
+    writeSubTaskRecord(REMOVE_TOP_LEVEL, plan, subTask);
+  }
+
+  @Override
+  public void subTaskDetached(OverallTask plan, SubTask subTask) {
+    writeSubTaskRecord(DETACH_SUBTASK, plan, subTask);
+  }
+
+  @Override
+  public void dependencyAdded(OverallTask plan, SubTask dependant,
+                              SubTask dependency) {
+    writeDependencyRecord(ADD_DEPENDENCY, plan, dependant, dependency);
+  }
+
+  @Override
+  public void dependencyRemoved(OverallTask plan, SubTask dependant,
+                                SubTask dependency) {
+    writeDependencyRecord(REMOVE_DEPENDENCY, plan, dependant, dependency);
+  }
+
+  /**
+   * Waits until every change made so far is on disk.
+   *
+   * @throws IOException if the journal could not be written, from then on,
+   * or the last snapshot could not be, which is then only reported once
+   */
+  public void sync() throws IOException {
+    await(writer.submit(this::flush));
+    IOException failure = this.failure;
+    if (failure != null) {
+      throw failure;
+    }
+    reportSnapshotFailure();
+  }
+
+  //a failed snapshot leaves the older snapshot and journals in place, so
+  //nothing is lost, but the journal keeps growing until one succeeds
+  private void reportSnapshotFailure() throws IOException {
+    IOException failure = snapshotFailure;
+    if (failure != null) {
+      snapshotFailure = null;
+      throw failure;
+    }
+  }
+
+  /**
+   * Snapshots the workspace now, instead of once the journal has outgrown
+   * COMPACTION_THRESHOLD. The plans are encoded by the calling thread, which
+   * must not be in the middle of changing them, and written in the
+   * background.
+   */
+  public void compact() {
+    checkFailure();
+    compactionRequested = false;
+    WorkspaceFile.Encoder snapshot = WorkspaceFile.encode(plans);
+    generation++;
+    numberPlans();
+    startGeneration(snapshot);
+  }
+
+  /**
+   * Asks the model thread to compact the journal once it has outgrown
+   * COMPACTION_THRESHOLD and no snapshot is being written.
+   */
+  private void requestCompactionIfNeeded() {
+    if (journalSize < COMPACTION_THRESHOLD || compactionRequested
+        || snapshotting != null && !snapshotting.isDone()) {
+      return;
+    }
+    compactionRequested = true;
+    modelThread.execute(() -> {
+      if (compactionRequested) {
+        compact();
+      }
+    });
+  }
+
+  /**
+   * Writes every change to disk, waits for a snapshot being written, and
+   * stops listening to the plans. If this fails the journal stays open,
+   * listening to the plans: after a failed snapshot it still saves changes
+   * and can be closed again, after a failed write it refuses them.
+   *
+   * @throws IOException if the journal could not be written, or the last
+   * snapshot could not be
+   */
+  @Override
+  public void close() throws IOException {
+    sync();
+    if (snapshotting != null) {
+      await(snapshotting);
+    }
+    reportSnapshotFailure();
+
+    for (OverallTask plan : plans) {
+      if (plan.getPlanListener() == this) {
+        plan.setPlanListener(null);
+      }
+    }
+    try {
+      await(writer.submit(() -> {
+        try {
+          flush();
+        } finally {
+          if (channel != null) {
+            channel.close();
+          }
+        }
+        return null;
+      }));
+    } finally {
+      writer.shutdown();
+      snapshotWriter.shutdown();
+    }
+  }
+
+  /**
+   * Numbers the plans in order, as they are numbered in a snapshot.
+   */
+  private void numberPlans() {
+    planIds.clear();
+    for (int i = 0; i < plans.size(); i++) {
+      planIds.put(plans.get(i), i);
+    }
+    nextPlanId = plans.size();
+  }
+
+  /**
+   * Switches to the journal of the current generation once the records of
+   * the previous one are written. If there is a snapshot, it is then
+   * written and the files of older generations deleted; until it is, the
+   * old snapshot and journals are kept to recover from.
+   */
+  private void startGeneration(WorkspaceFile.Encoder snapshot) {
+    long current = generation;
+    journalSize = 0;
+    byte[] previous;
+    synchronized (this) {
+      previous = Arrays.copyOf(pending.array(), pending.size());
+      pending.clear();
+      rotations++;
+    }
+    Future<?> rotated = writer.submit(() -> {
+      try {
+        if (channel != null) {
+          if (failure == null) {
+            write(previous);
+          }
+          channel.close();
+        }
+        channel = FileChannel.open(journalPath(directory, current),
+            StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+            StandardOpenOption.APPEND);
+      } catch (IOException e) {
+        fail(e);
+        throw e;
+      } finally {
+        synchronized (this) {
+          rotations--;
+        }
+      }
+      //records appended since the generation was started
+      return flush();
+    });
+    if (snapshot != null) {
+      snapshotting = snapshotWriter.submit(() -> {
+        try {
+          Path path = snapshotPath(directory, current);
+          snapshot.write(path);
+          //plans unchanged since they were encoded can be unloaded, and
+          //read back from the new snapshot
+          WorkspaceFile file = WorkspaceFile.open(path);
+          modelThread.execute(() -> snapshot.saved(file));
+          //the new journal has to exist before the old ones are deleted
+          await(rotated);
+          deleteOlderThan(current);
+        } catch (IOException e) {
+          snapshotFailure = e;
+        }
+      });
+    }
+  }
+
+  private void deleteOlderThan(long current) throws IOException {
+    try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+      for (Path file : files) {
+        String name = file.getFileName().toString();
+        Matcher snapshot = SNAPSHOT.matcher(name);
+        Matcher journal = JOURNAL.matcher(name);
+        if (snapshot.matches() && Long.parseLong(snapshot.group(1)) < current
+            || journal.matches() && Long.parseLong(journal.group(1)) < current) {
+          Files.delete(file);
+        }
+      }
+    }
+  }
+
+  private void begin(byte type, Integer plan) {
+    if (plan == null) {
+      throw new IllegalStateException("The plan is not part of the workspace");
+    }
+    record.clear();
+    record.writeInt(0);
+    record.writeInt(0);
+    record.writeByte(type);
+    record.writeVarint(plan);
+  }
+
+  /**
+   * Frames the record and hands it to the writer, asking for the journal to
+   * be compacted if it has grown too large.
+   *
+   * @throws IllegalStateException if the journal could not be written
+   */
+  private void end() {
+    checkFailure();
+    int length = record.size() - FRAME_SIZE;
+    crc.reset();
+    crc.update(record.array(), FRAME_SIZE, length);
+    record.setInt(0, length);
+    record.setInt(4, (int) crc.getValue());
+    boolean schedule;
+    synchronized (this) {
+      pending.write(record.array(), 0, record.size());
+      schedule = !flushScheduled;
+      flushScheduled = true;
+    }
+    if (schedule) {
+      writer.submit(this::flush);
+    }
+    journalSize += record.size();
+    requestCompactionIfNeeded();
+  }
+
+  private void writePlanFields(OverallTask plan) {
+    record.writeString(plan.getTaskName());
+    record.writeString(plan.getDescription() == null ? ""
+        : plan.getDescription());
+    record.writeVarint(plan.getDuration().getTotalMinutes());
+    record.writeVarint(Time.toMinutes(plan.getStartTime()));
+    record.writeVarint(plan.getHands());
+  }
+
+  private void writeSubTaskFields(SubTask subTask) {
+    record.writeString(subTask.getTaskName());
+    record.writeVarint(subTask.getDuration().getTotalMinutes());
+    record.writeVarint(subTask.getResourceDemand());
+    record.writeByte(subTask.hasEstimate() ? 1 : 0);
+    if (subTask.hasEstimate()) {
+      record.writeVarint(subTask.getOptimisticDuration().getTotalMinutes());
+      record.writeVarint(subTask.getPessimisticDuration().getTotalMinutes());
+    }
+  }
+
+  private void writeSubTaskRecord(byte type, OverallTask plan,
+                                  SubTask subTask) {
+    begin(type, planIds.get(plan));
+    record.writeVarint(subTask.getId());
+    end();
+  }
+
+  private void writeDependencyRecord(byte type, OverallTask plan,
+                                     SubTask dependant, SubTask dependency) {
+    begin(type, planIds.get(plan));
+    record.writeVarint(dependant.getId());
+    record.writeVarint(dependency.getId());
+    end();
+  }
+
+  /**
+   * Writes all pending records and forces them to disk. Runs on the writer
+   * thread; records appended while it runs are written by the next flush.
+   */
+  private Void flush() throws IOException {
+    ByteBuilder batch;
+    synchronized (this) {
+      if (rotations > 0) {
+        //the pending records belong to a journal that is not open yet; the
+        //writer flushes them once it has switched to it
+        return null;
+      }
+      batch = pending;
+      pending = spare;
+      spare = batch;
+      flushScheduled = false;
+    }
+    try {
+      if (failure != null) {
+        throw failure;
+      }
+      if (batch.size() > 0) {
+        ByteBuffer bytes = ByteBuffer.wrap(batch.array(), 0, batch.size());
+        while (bytes.hasRemaining()) {
+          channel.write(bytes);
+        }
+        channel.force(false);
+      }
+    } catch (IOException e) {
+      fail(e);
+      throw e;
+    } finally {
+      //a failed batch is dropped rather than written again after newer
+      //records
+      batch.clear();
+    }
+    return null;
+  }
+
+  private void fail(IOException e) {
+    if (failure == null) {
+      failure = e;
+    }
+  }
+
+  private void checkFailure() {
+    IOException failure = this.failure;
+    if (failure != null) {
+      throw new IllegalStateException("The workspace journal could not be "
+          + "written, changes are no longer saved", failure);
+    }
+  }
+
+  private void write(byte[] bytes) throws IOException {
+    ByteBuffer buffer = ByteBuffer.wrap(bytes);
+    while (buffer.hasRemaining()) {
+      channel.write(buffer);
+    }
+    channel.force(false);
+  }
+
+  private static void await(Future<?> future) throws IOException {
+    try {
+      future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while writing the journal", e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof IOException) {
+        throw (IOException) e.getCause();
+      }
+      throw new IllegalStateException(e.getCause());
+    }
+  }
+
+  /**
+   * Replays the records of a journal on the plans, up to the first torn or
+   * corrupt record.
+   *
+   * @return whether the whole journal was replayed
+   */
+  private boolean replay(Path path) throws IOException {
+    ByteBuffer in = ByteBuffer.wrap(Files.readAllBytes(path));
+    Map<Integer, OverallTask> byId = new HashMap<>();
+    for (Map.Entry<OverallTask, Integer> entry : planIds.entrySet()) {
+      byId.put(entry.getValue(), entry.getKey());
+    }
+    journalSize = 0;
+    while (in.remaining() >= FRAME_SIZE) {
+      int start = in.position();
+      int length = in.getInt();
+      int checksum = in.getInt();
+      if (length < 1 || length > in.remaining()) {
+        return false;
+      }
+      crc.reset();
+      crc.update(in.array(), in.position(), length);
+      if ((int) crc.getValue() != checksum) {
+        return false;
+      }
+      ByteBuffer body = ByteBuffer.wrap(in.array(), in.position(), length)
+          .slice();
+      in.position(in.position() + length);
+      try {
+        apply(body, byId);
+      } catch (BufferUnderflowException | IllegalArgumentException e) {
+        throw new IOException("Journal record at " + start + " of " + path
+            + " cannot be replayed", e);
+      }
+      journalSize = in.position();
+    }
+    return !in.hasRemaining();
+  }
+
+  private void apply(ByteBuffer in, Map<Integer, OverallTask> byId)
+      throws IOException {
+    byte type = in.get();
+    int planId = ByteBuilder.readVarint(in);
+    OverallTask plan = byId.get(planId);
+    if (type == ADD_PLAN) {
+      plan = new OverallTask(ByteBuilder.readString(in), Duration.ofMinutes(0),
+          new Time(0, 0));
+      readPlanFields(in, plan);
+      byId.put(planId, plan);
+      plans.add(plan);
+      planIds.put(plan, planId);
+      nextPlanId = Math.max(nextPlanId, planId + 1);
+      return;
+    }
+    if (plan == null) {
+      throw new IOException("No plan " + planId);
+    }
+    switch (type) {
+      case REMOVE_PLAN:
+        plans.remove(plan);
+        planIds.remove(plan);
+        byId.remove(planId);
+        break;
+      case SET_PLAN:
+        plan.setName(ByteBuilder.readString(in));
+        readPlanFields(in, plan);
+        break;
+      case ADD_SUBTASK: {
+        int id = ByteBuilder.readVarint(in);
+        SubTask subTask = new SubTask(ByteBuilder.readString(in),
+            Duration.ofMinutes(0));
+        readSubTaskFields(in, subTask);
+        plan.adopt(subTask, id);
+        int dependencyCount = ByteBuilder.readVarint(in);
+        for (int d = 0; d < dependencyCount; d++) {
+          subTask.addDependency(subTask(plan, ByteBuilder.readVarint(in)));
+        }
+        break;
+      }
+      case SET_SUBTASK: {
+        SubTask subTask = subTask(plan, ByteBuilder.readVarint(in));
+        subTask.setName(ByteBuilder.readString(in));
+        readSubTaskFields(in, subTask);
+        break;
+      }
+      case ADD_TOP_LEVEL:
+        plan.addSubTask(subTask(plan, ByteBuilder.readVarint(in)));
+        break;
+      case REMOVE_TOP_LEVEL:
+        plan.removeSubTask(subTask(plan, ByteBuilder.readVarint(in)));
+        break;
+      case DETACH_SUBTASK:
+        plan.detachSubTask(subTask(plan, ByteBuilder.readVarint(in)));
+        break;
+      case ADD_DEPENDENCY:
+        subTask(plan, ByteBuilder.readVarint(in))
+            .addDependency(subTask(plan, ByteBuilder.readVarint(in)));
+        break;
+      case REMOVE_DEPENDENCY:
+        subTask(plan, ByteBuilder.readVarint(in))
+            .removeDependency(subTask(plan, ByteBuilder.readVarint(in)));
+        break;
+      default:
+        throw new IOException("Unknown record type " + type);
+    }
+  }
+
+  /**
+   * Reads the fields of a plan after its name.
+   */
+  private static void readPlanFields(ByteBuffer in, OverallTask plan)
+      throws IOException {
+    plan.setDescription(ByteBuilder.readString(in));
+    plan.setDuration(Duration.ofMinutes(ByteBuilder.readVarint(in)));
+    plan.setStartTime(Time.fromMinutes(ByteBuilder.readVarint(in)));
+    plan.setHands(ByteBuilder.readVarint(in));
+  }
+
+  /**
+   * Reads the fields of a subtask after its name.
+   */
+  private static void readSubTaskFields(ByteBuffer in, SubTask subTask)
+      throws IOException {
+    Duration duration = Duration.ofMinutes(ByteBuilder.readVarint(in));
+    subTask.setResourceDemand(ByteBuilder.readVarint(in));
+    if (in.get() != 0) {
+      Duration optimistic = Duration.ofMinutes(ByteBuilder.readVarint(in));
+      Duration pessimistic = Duration.ofMinutes(ByteBuilder.readVarint(in));
+      subTask.restoreEstimate(optimistic, duration, pessimistic);
+    } else {
+      subTask.restoreEstimate(null, duration, null);
+    }
+  }
+
+  private static SubTask subTask(OverallTask plan, int id) throws IOException {
+    SubTask subTask = id < plan.getSubTaskIdLimit() ? plan.getSubTask(id)
+        : null;
+    if (subTask == null) {
+      throw new IOException("No subtask " + id + " in " + plan.getTaskName());
+    }
+    return subTask;
+  }
+
+  private static Path snapshotPath(Path directory, long generation) {
+    return directory.resolve("snapshot-" + generation + ".cpaw");
+  }
+
+  private static Path journalPath(Path directory, long generation) {
+    return directory.resolve("journal-" + generation + ".log");
+  }
+}
@@ -0,0 +1,97 @@
+package application;
+
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * ScenarioEvaluator running the passes on the lanes of the preferred
+ * IntVector species, with a scalar loop for the scenarios past the last full
+ * vector. Requires the jdk.incubator.vector module, so it lives in the
+ * optional vector source root and is compiled separately, see the README;
+ * ScenarioEvaluator only loads it reflectively, so the rest of the
+ * application builds and runs without the module.
+ */
+final class VectorScenarioEvaluator extends ScenarioEvaluator {
+
+  private static final VectorSpecies<Integer> SPECIES =
+      IntVector.SPECIES_PREFERRED;
+
+  VectorScenarioEvaluator() {
+  }
+
+  @Override
+  public boolean isVectorised() {
+    return true;
+  }
+
+  @Override
+  public void evaluate(ScenarioBatch batch) {
+    PlanTopology topology = batch.getTopology();
+    int k = batch.getScenarioCount();
+    int[] duration = batch.durations();
+    int[] earliestStart = batch.earliestStarts();
+    int[] latestStart = batch.latestStarts();
+    int[] finish = batch.finishTimes();
+    int n = topology.size();
+    int bound = SPECIES.loopBound(k);
+
+    //forward pass
+    for (int s = 0; s < k; s++) {
+      finish[s] = 0;
+    }
+    for (int p = 0; p < n; p++) {
+      int t = topology.getOrder(p);
+      int row = t * k;
+      int s = 0;
+      for (; s < bound; s += SPECIES.length()) {
+        IntVector start = IntVector.zero(SPECIES);
+        for (int a = topology.getFirstPred(t); a < topology.getEndPred(t);
+             a++) {
+          int predRow = topology.getPred(a) * k + s;
+          start = start.max(IntVector.fromArray(SPECIES, earliestStart, predRow)
+              .add(IntVector.fromArray(SPECIES, duration, predRow)));
+        }
+        start.intoArray(earliestStart, row + s);
+        IntVector.fromArray(SPECIES, finish, s)
+            .max(start.add(IntVector.fromArray(SPECIES, duration, row + s)))
+            .intoArray(finish, s);
+      }
+      for (; s < k; s++) {
+        int start = 0;
+        for (int a = topology.getFirstPred(t); a < topology.getEndPred(t);
+             a++) {
+          int predRow = topology.getPred(a) * k + s;
+          start = Math.max(start, earliestStart[predRow] + duration[predRow]);
+        }
+        earliestStart[row + s] = start;
+        finish[s] = Math.max(finish[s], start + duration[row + s]);
+      }
+    }
+
+    //backward pass
+    for (int p = n - 1; p >= 0; p--) {
+      int t = topology.getOrder(p);
+      int row = t * k;
+      int s = 0;
+      for (; s < bound; s += SPECIES.length()) {
+        IntVector latestFinish = IntVector.fromArray(SPECIES, finish, s);
+        for (int a = topology.getFirstSucc(t); a < topology.getEndSucc(t);
+             a++) {
+          latestFinish = latestFinish.min(IntVector.fromArray(SPECIES,
+              latestStart, topology.getSucc(a) * k + s));
+        }
+        latestFinish.sub(IntVector.fromArray(SPECIES, duration, row + s))
+            .intoArray(latestStart, row + s);
+      }
+      for (; s < k; s++) {
+        int latestFinish = finish[s];
+        for (int a = topology.getFirstSucc(t); a < topology.getEndSucc(t);
+             a++) {
+          latestFinish = Math.min(latestFinish,
+              latestStart[topology.getSucc(a) * k + s]);
+        }
+        latestStart[row + s] = latestFinish - duration[row + s];
+      }
+    }
+  }
+}